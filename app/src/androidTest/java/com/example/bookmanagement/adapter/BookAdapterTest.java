@@ -0,0 +1,238 @@
+package com.example.bookmanagement.adapter;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.ContextThemeWrapper;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.bookmanagement.R;
+import com.example.bookmanagement.database.BookPagingSource;
+import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.model.Category;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class BookAdapterTest {
+    private static final int BOOKS = 5;
+
+    private Instrumentation instrumentation;
+    private Context context;
+    private RecyclerView recyclerView;
+    private CountingAdapter adapter;
+    private List<Book> books;
+
+    @Before
+    public void setUp() {
+        instrumentation = InstrumentationRegistry.getInstrumentation();
+        context = new ContextThemeWrapper(instrumentation.getTargetContext(), R.style.Theme_Bookmanagement);
+        books = new ArrayList<>();
+        for (int i = 1; i <= BOOKS; i++) {
+            books.add(new Book(i, "Book " + i, "Author", new Date(0), Category.NOVEL.mask()));
+        }
+
+        instrumentation.runOnMainSync(() -> {
+            recyclerView = new RecyclerView(context);
+            recyclerView.setLayoutManager(new LinearLayoutManager(context));
+            // Change animations bind a second holder; only the diff itself is measured here
+            recyclerView.setItemAnimator(null);
+            adapter = new CountingAdapter(context, books);
+            recyclerView.setAdapter(adapter);
+            layout();
+        });
+    }
+
+    @Test
+    public void editingOneBookRebindsOnlyThatRow() throws InterruptedException {
+        assertEquals(BOOKS, adapter.binds);
+
+        List<Book> edited = new ArrayList<>(books);
+        Book book = new Book(books.get(2));
+        book.setTitle("Edited");
+        edited.set(2, book);
+        submitAndLayout(edited);
+
+        assertEquals(1, adapter.binds);
+        assertEquals(2, adapter.lastBoundPosition);
+    }
+
+    @Test
+    public void deletingOneBookBindsNoRows() throws InterruptedException {
+        List<Book> remaining = new ArrayList<>(books);
+        remaining.remove(1);
+        submitAndLayout(remaining);
+
+        assertEquals(0, adapter.binds);
+        assertEquals(BOOKS - 1, adapter.getItemCount());
+    }
+
+    @Test
+    public void rowsKeepTheirBookIdAndShowFormattedText() {
+        assertTrue(adapter.hasStableIds());
+        assertEquals(3, adapter.getItemId(2));
+
+        instrumentation.runOnMainSync(() -> {
+            BookAdapter.BookViewHolder holder =
+                    (BookAdapter.BookViewHolder) recyclerView.findViewHolderForAdapterPosition(2);
+            assertEquals("003", holder.tvBookId.getText().toString());
+            assertEquals(new SimpleDateFormat("dd/MM/yyyy", Locale.US).format(new Date(0)),
+                    holder.tvPublishDate.getText().toString());
+        });
+    }
+
+    @Test
+    public void refreshAfterDeletingFromTheFirstPageShowsEveryBookOnce() throws InterruptedException {
+        TreeMap<Integer, Book> table = new TreeMap<>();
+        for (int i = 1; i <= 10; i++) {
+            table.put(i, new Book(i, "Book " + i, "Author", new Date(0), Category.NOVEL.mask()));
+        }
+        BookAdapter pagedAdapter = showPaged(table);
+        awaitItemIds(pagedAdapter, 1, 2, 3);
+
+        instrumentation.runOnMainSync(() -> {
+            table.remove(2);
+            pagedAdapter.refresh();
+        });
+
+        awaitItemIds(pagedAdapter, 1, 3, 4);
+    }
+
+    @Test
+    public void refreshShowsTheFirstBookAddedToAnEmptyList() throws InterruptedException {
+        TreeMap<Integer, Book> table = new TreeMap<>();
+        BookAdapter pagedAdapter = showPaged(table);
+        awaitItemIds(pagedAdapter);
+
+        instrumentation.runOnMainSync(() -> {
+            table.put(1, new Book(1, "Book 1", "Author", new Date(0), Category.NOVEL.mask()));
+            pagedAdapter.refresh();
+        });
+
+        awaitItemIds(pagedAdapter, 1);
+    }
+
+    // Adapter over three-row pages of the table, read on the main thread and delivered in a
+    // later message as the repository does
+    private BookAdapter showPaged(TreeMap<Integer, Book> table) {
+        Handler handler = new Handler(Looper.getMainLooper());
+        BookPagingSource source = new BookPagingSource((after, limit, callback) -> {
+            List<Book> page = new ArrayList<>();
+            for (Book book : table.tailMap(after != null ? after.getId() : 0, false).values()) {
+                if (page.size() == limit) {
+                    break;
+                }
+                page.add(book);
+            }
+            handler.post(() -> callback.onPageLoaded(page));
+        }, 3, 1);
+        BookAdapter[] pagedAdapter = new BookAdapter[1];
+        instrumentation.runOnMainSync(() -> {
+            pagedAdapter[0] = new BookAdapter(context, source, null);
+            recyclerView.setAdapter(pagedAdapter[0]);
+            layout();
+        });
+        return pagedAdapter[0];
+    }
+
+    // Waits for the first rows to be exactly the given book ids, with no id repeated
+    private void awaitItemIds(BookAdapter pagedAdapter, long... ids) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        List<Long> shown = new ArrayList<>();
+        while (System.currentTimeMillis() < deadline) {
+            shown.clear();
+            instrumentation.runOnMainSync(() -> {
+                layout();
+                for (int position = 0; position < pagedAdapter.getItemCount(); position++) {
+                    shown.add(pagedAdapter.getItemId(position));
+                }
+            });
+            if (matches(shown, ids)) {
+                return;
+            }
+            Thread.sleep(10);
+        }
+        fail("rows " + shown);
+    }
+
+    private static boolean matches(List<Long> shown, long[] ids) {
+        if (new HashSet<>(shown).size() != shown.size() || shown.size() < ids.length) {
+            return false;
+        }
+        // An empty list must stay empty; otherwise only the first page is compared
+        if (ids.length == 0 && !shown.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < ids.length; i++) {
+            if (shown.get(i) != ids[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void submitAndLayout(List<Book> newBooks) throws InterruptedException {
+        CountDownLatch dispatched = new CountDownLatch(1);
+        instrumentation.runOnMainSync(() -> {
+            adapter.binds = 0;
+            adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+                @Override
+                public void onItemRangeChanged(int positionStart, int itemCount) {
+                    dispatched.countDown();
+                }
+
+                @Override
+                public void onItemRangeRemoved(int positionStart, int itemCount) {
+                    dispatched.countDown();
+                }
+            });
+            adapter.submitList(newBooks);
+        });
+        // The diff runs on a background thread and is dispatched on a later main-thread message
+        assertTrue(dispatched.await(5, TimeUnit.SECONDS));
+        instrumentation.runOnMainSync(this::layout);
+    }
+
+    private void layout() {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(1080, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(1920, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, 1080, 1920);
+    }
+
+    private static class CountingAdapter extends BookAdapter {
+        int binds;
+        int lastBoundPosition = -1;
+
+        CountingAdapter(Context context, List<Book> books) {
+            super(context, books, null);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull BookViewHolder holder, int position) {
+            binds++;
+            lastBoundPosition = position;
+            super.onBindViewHolder(holder, position);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.bookmanagement.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.bookmanagement.analytics.BookAnalytics;
+import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.model.BookStatistics;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Iterator;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+// BookAnalytics read through a real DatabaseHelper; in this package for its test constructor
+@RunWith(AndroidJUnit4.class)
+public class BookAnalyticsTest {
+    private static final String TAG = "BookAnalyticsTest";
+    private static final String DATABASE_NAME = "book_analytics_test.db";
+    private static final int CATALOG_SIZE = 1_000_000;
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void columnarAnalyticsMatchesSqlStatistics() {
+        databaseHelper.addBooks(generatedBooks(CATALOG_SIZE), null);
+
+        long start = System.nanoTime();
+        BookAnalytics analytics = new BookAnalytics(databaseHelper);
+        analytics.refresh();
+        long loadMillis = (System.nanoTime() - start) / 1_000_000;
+
+        int[][] filters = {{1900, 2024, 0}, {1950, 2000, 0b101}, {1975, 1975, 0b010}};
+        for (int[] filter : filters) {
+            start = System.nanoTime();
+            BookStatistics sql = databaseHelper.getStatistics(filter[0], filter[1], filter[2], 10);
+            long sqlMicros = (System.nanoTime() - start) / 1000;
+            start = System.nanoTime();
+            BookStatistics columnar = analytics.getStatistics(filter[0], filter[1], filter[2], null, 10);
+            long columnarMicros = (System.nanoTime() - start) / 1000;
+
+            Log.i(TAG, String.format(Locale.US, "statistics %d-%d mask %d over %d books: sql %d us, columnar %d us",
+                    filter[0], filter[1], filter[2], CATALOG_SIZE, sqlMicros, columnarMicros));
+            assertEquals(sql.getTotalCount(), columnar.getTotalCount());
+            assertEquals(sql.getCountsByYear(), columnar.getCountsByYear());
+            assertEquals(sql.getCountsByAuthor(), columnar.getCountsByAuthor());
+        }
+        Log.i(TAG, "columnar load of " + CATALOG_SIZE + " books: " + loadMillis + " ms");
+
+        // An edit reaches the catalog through the change event, without a reload
+        Book edited = databaseHelper.getBook(1);
+        edited.setPublishDate(EpochDays.toDate(EpochDays.firstDayOfYear(2030)));
+        databaseHelper.updateBook(edited);
+        assertEquals(1, analytics.getStatistics(2030, 2030, 0, null, 10).getTotalCount());
+        analytics.close();
+    }
+
+    // Makes each book as addBooks pulls it, so the catalog is never held in memory at once
+    private static Iterable<Book> generatedBooks(int count) {
+        long firstDay = EpochDays.firstDayOfYear(1900);
+        return () -> new Iterator<Book>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Book next() {
+                int i = next++;
+                return new Book(0, "Sách " + i, "Tác giả " + (i % 5000),
+                        EpochDays.toDate(firstDay + (i * 7919L) % 45_000), 1 + i % 7);
+            }
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.bookmanagement.database;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.bookmanagement.model.Book;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Date;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+// Per-operation write latency with the shared connection against the old behaviour of
+// closing the database after every call. Timings depend on the device, so they are only
+// logged, under the "DatabaseHelperLatency" tag.
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperLatencyTest {
+    private static final String TAG = "DatabaseHelperLatency";
+    private static final String DATABASE_NAME = "latency_test.db";
+    private static final int BOOKS = 300;
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        databaseHelper.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void logsWriteLatencyWithSharedAndReopenedConnections() {
+        // Warm up so both runs see a created schema and a compiled statement cache
+        timeWrites(false);
+
+        long reopenNanos = timeWrites(true);
+        long sharedNanos = timeWrites(false);
+
+        Log.i(TAG, String.format(Locale.US, "add+update+delete per book: reopen %.1f us, shared %.1f us",
+                reopenNanos / 1000.0 / BOOKS, sharedNanos / 1000.0 / BOOKS));
+        // Every write went through and was undone, whichever way the connection was held
+        assertEquals(0, databaseHelper.getBooksAfterId(0, 1).size());
+    }
+
+    private long timeWrites(boolean reopenEachCall) {
+        long start = System.nanoTime();
+        for (int i = 0; i < BOOKS; i++) {
+            Book book = new Book(0, "Book " + i, "Author " + (i % 20), new Date(), i % 2 == 0, i % 3 == 0, i % 5 == 0);
+            book.setId((int) databaseHelper.addBook(book));
+            closeIf(reopenEachCall);
+
+            book.setTitle("Edited " + i);
+            databaseHelper.updateBook(book);
+            closeIf(reopenEachCall);
+
+            databaseHelper.deleteBook(book.getId());
+            closeIf(reopenEachCall);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void closeIf(boolean reopenEachCall) {
+        if (reopenEachCall) {
+            databaseHelper.close();
+        }
+    }
+}
@@ -0,0 +1,668 @@
+package com.example.bookmanagement.database;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.bookmanagement.importer.BookImporter;
+import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.model.BookStatistics;
+import com.example.bookmanagement.model.Category;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class DatabaseHelperTest {
+    private static final String TAG = "DatabaseHelperTest";
+    private static final String DATABASE_NAME = "database_helper_test.db";
+    private static final int SEARCH_CATALOG_SIZE = 500_000;
+    private static final int AUTHOR_CATALOG_SIZE = 200_000;
+    private static final int AUTHOR_COUNT = 5000;
+    private static final String AUTHOR_SIZE_DATABASE_NAME = "author_size_test.db";
+    private static final String[] WORDS = {"lịch", "sử", "việt", "nam", "truyện", "kiều", "thơ", "tuyển",
+            "tập", "khoa", "học", "vũ", "trụ", "dế", "mèn", "phiêu", "lưu", "ký", "số", "đỏ"};
+
+    private Context context;
+    private DatabaseHelper databaseHelper;
+
+    @Before
+    public void setUp() {
+        context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @After
+    public void tearDown() {
+        if (databaseHelper != null) {
+            databaseHelper.close();
+        }
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void upgradeFromVersion1KeepsRowsDatesAndCategories() {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(DATABASE_NAME), null);
+        db.execSQL("CREATE TABLE books(id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT, author TEXT,"
+                + " publish_date TEXT, is_science INTEGER, is_novel INTEGER, is_children INTEGER)");
+        db.execSQL("INSERT INTO books(title, author, publish_date, is_science, is_novel, is_children)"
+                + " VALUES('Lược sử thời gian', 'Stephen Hawking', '1988-04-01', 1, 0, 0)");
+        db.execSQL("INSERT INTO books(title, author, publish_date, is_science, is_novel, is_children)"
+                + " VALUES('Deleted', 'Nobody', '2000-01-01', 0, 1, 0)");
+        db.execSQL("DELETE FROM books WHERE title = 'Deleted'");
+        db.setVersion(1);
+        db.close();
+
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        Book book = databaseHelper.getBook(1);
+
+        assertEquals("Lược sử thời gian", book.getTitle());
+        assertTrue(book.isScience());
+        assertFalse(book.isNovel());
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(book.getPublishDate());
+        assertEquals(1988, calendar.get(Calendar.YEAR));
+        assertEquals(Calendar.APRIL, calendar.get(Calendar.MONTH));
+        assertEquals(1, calendar.get(Calendar.DAY_OF_MONTH));
+        assertEquals(1, databaseHelper.getBooksByYearRangeAndCategories(1980, 1990, Category.SCIENCE.mask()).size());
+        // The AUTOINCREMENT counter survives the table rebuild
+        assertEquals(3, databaseHelper.addBook(book));
+    }
+
+    @Test
+    public void yearRangeQueryUsesPublishDateIndex() {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+
+        assertUsesIndex(databaseHelper.explainYearRangeQuery(2000, 2010, 0));
+        assertUsesIndex(databaseHelper.explainYearRangeQuery(2000, 2010, Category.SCIENCE.mask() | Category.CHILDREN.mask()));
+    }
+
+    @Test
+    public void statisticsCountYearsCategoriesAndAuthors() {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        databaseHelper.addBook(book("A", "Nam Cao", 1941, Category.NOVEL.mask()));
+        databaseHelper.addBook(book("B", "Nam Cao", 1943, Category.NOVEL.mask() | Category.CHILDREN.mask()));
+        databaseHelper.addBook(book("C", "Tô Hoài", 1941, Category.CHILDREN.mask()));
+        databaseHelper.addBook(book("D", "Tô Hoài", 1960, Category.SCIENCE.mask()));
+
+        BookStatistics statistics = databaseHelper.getStatistics(1940, 1950, 0, 5);
+
+        assertEquals(3, statistics.getTotalCount());
+        assertEquals(Integer.valueOf(2), statistics.getCountsByYear().get(1941));
+        assertEquals(Integer.valueOf(1), statistics.getCountsByYear().get(1943));
+        assertEquals(2, statistics.getCategoryCount(Category.NOVEL));
+        assertEquals(2, statistics.getCategoryCount(Category.CHILDREN));
+        assertEquals(0, statistics.getCategoryCount(Category.SCIENCE));
+        assertEquals(Integer.valueOf(2), statistics.getCountsByAuthor().get("Nam Cao"));
+    }
+
+    @Test
+    public void yearRangePagesFollowPublishDateOrder() {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        for (int i = 0; i < 10; i++) {
+            // Two books per year, inserted newest first so id order differs from date order
+            databaseHelper.addBook(book("Book " + i, "Author", 2010 - i / 2, Category.NOVEL.mask()));
+        }
+
+        List<Book> firstPage = databaseHelper.getBooksByYearRangeAndCategories(2000, 2020, 0, null, 3);
+        List<Book> secondPage = databaseHelper.getBooksByYearRangeAndCategories(2000, 2020, 0, firstPage.get(2), 3);
+
+        assertEquals(3, firstPage.size());
+        assertEquals(3, secondPage.size());
+        Book previous = null;
+        for (Book book : concat(firstPage, secondPage)) {
+            if (previous != null) {
+                int order = book.getPublishDate().compareTo(previous.getPublishDate());
+                assertTrue(order > 0 || (order == 0 && book.getId() > previous.getId()));
+            }
+            previous = book;
+        }
+    }
+
+    @Test
+    public void searchMatchesPrefixesWithoutDiacriticsAndRanksTitleStarts() {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        databaseHelper.addBook(book("Truyện ngắn Số đỏ", "Vũ Trọng Phụng", 1936, Category.NOVEL.mask()));
+        databaseHelper.addBook(book("Số đỏ", "Vũ Trọng Phụng", 1936, Category.NOVEL.mask()));
+        databaseHelper.addBook(book("Dế Mèn phiêu lưu ký", "Tô Hoài", 1941, Category.CHILDREN.mask()));
+
+        List<Book> byTitle = databaseHelper.searchBooks("so d", 10);
+        assertEquals(2, byTitle.size());
+        assertEquals("Số đỏ", byTitle.get(0).getTitle());
+        assertEquals(1, databaseHelper.searchBooks("to hoai", 10).size());
+        assertEquals(0, databaseHelper.searchBooks("\"* OR", 10).size());
+    }
+
+    @Test
+    public void searchRanksTitleStartsAddedAfterManyAuthorMatches() {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            books.add(book("Tuyển tập " + i, "Viện Lịch sử " + i, 1990, Category.SCIENCE.mask()));
+        }
+        databaseHelper.addBooks(books, null);
+        databaseHelper.addBook(book("Lịch sử Việt Nam", "Trần Trọng Kim", 1920, Category.SCIENCE.mask()));
+
+        List<Book> found = databaseHelper.searchBooks("lich su", 10);
+        assertEquals(10, found.size());
+        assertEquals("Lịch sử Việt Nam", found.get(0).getTitle());
+    }
+
+    @Test
+    public void searchFollowsUpdatesAndDeletes() {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        Book book = book("Tắt đèn", "Ngô Tất Tố", 1937, Category.NOVEL.mask());
+        book.setId((int) databaseHelper.addBook(book));
+
+        book.setTitle("Lều chõng");
+        databaseHelper.updateBook(book);
+        assertEquals(0, databaseHelper.searchBooks("tat den", 10).size());
+        assertEquals(1, databaseHelper.searchBooks("leu", 10).size());
+
+        databaseHelper.deleteBook(book.getId());
+        assertEquals(0, databaseHelper.searchBooks("leu", 10).size());
+    }
+
+    @Test
+    public void searchRanksTitleStartsOnLargeCatalog() {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        Date date = new Date();
+        databaseHelper.addBooks(generatedBooks(SEARCH_CATALOG_SIZE, i -> {
+            String title = WORDS[i % WORDS.length] + " " + WORDS[(i / 7) % WORDS.length] + " " + i;
+            return new Book(0, title, "Tác giả " + (i % 5000), date, i % 2 == 0, i % 3 == 0, i % 5 == 0);
+        }), null);
+
+        // Query and the words its title-start matches begin with; no title starts with "tac"
+        String[][] queries = {{"lich su", "lịch sử "}, {"kieu", "kiều "}, {"phieu luu", "phiêu lưu "}, {"tac gia 42", null}};
+        for (String[] query : queries) {
+            long start = System.nanoTime();
+            List<Book> found = databaseHelper.searchBooks(query[0], 50);
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            // Timings depend on the device; the :benchmark module is the place for budgets
+            Log.i(TAG, String.format(Locale.US, "search \"%s\" over %d books: %d ms", query[0], SEARCH_CATALOG_SIZE, millis));
+
+            assertEquals(query[0], 50, found.size());
+            Set<Integer> ids = new HashSet<>();
+            boolean titleStarts = query[1] != null;
+            int previousLength = 0;
+            for (Book book : found) {
+                assertTrue(ids.add(book.getId()));
+                // Plenty of titles start with the words, so they fill the list, shortest first
+                if (titleStarts) {
+                    assertTrue(book.getTitle(), book.getTitle().startsWith(query[1]));
+                    assertTrue(book.getTitle().length() >= previousLength);
+                    previousLength = book.getTitle().length();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void upgradeFromVersion3IndexesExistingBooks() {
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(DATABASE_NAME), null);
+        db.execSQL("CREATE TABLE books(id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT, author TEXT,"
+                + " publish_date INTEGER, categories INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("INSERT INTO books(title, author, publish_date, categories) VALUES('Vợ nhặt', 'Kim Lân', 0, 2)");
+        db.setVersion(3);
+        db.close();
+
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+
+        assertEquals(1, databaseHelper.searchBooks("kim", 10).size());
+        // Counted into book_stats by the version 5 step
+        assertEquals(1, databaseHelper.getStatistics(1970, 1970, Category.NOVEL.mask(), 5).getTotalCount());
+        // Moved to the authors table by the version 6 step, whose rebuilt triggers still work
+        assertEquals("Kim Lân", databaseHelper.getBook(1).getAuthor());
+        databaseHelper.addBook(book("Nhà mẹ Lê", "Thạch Lam", 1970, Category.NOVEL.mask()));
+        assertEquals(1, databaseHelper.searchBooks("thach lam", 10).size());
+        assertEquals(2, databaseHelper.getStatistics(1970, 1970, Category.NOVEL.mask(), 5).getTotalCount());
+    }
+
+    @Test
+    public void authorsAreStoredOnceAndSharedBetweenBooks() {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        List<Book> added = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            // A new String per book, as a parser would produce
+            added.add(book("Book " + i, new String("Tác giả " + i % 3), 2000, Category.NOVEL.mask()));
+        }
+        databaseHelper.addBooks(added, null);
+        databaseHelper.addBook(book("Single", "Tác giả 1", 2001, Category.NOVEL.mask()));
+        databaseHelper.addBook(book("No author", null, 2001, Category.NOVEL.mask()));
+
+        SQLiteDatabase db = databaseHelper.getReadableDatabase();
+        assertEquals(3, DatabaseUtils.longForQuery(db, "SELECT COUNT(*) FROM authors", null));
+        Map<String, String> shared = new HashMap<>();
+        for (Book book : databaseHelper.getAllBooks()) {
+            if (book.getAuthor() == null) {
+                assertEquals("No author", book.getTitle());
+                continue;
+            }
+            String first = shared.putIfAbsent(book.getAuthor(), book.getAuthor());
+            assertTrue(first == null || first == book.getAuthor());
+        }
+        assertEquals(3, shared.size());
+        assertEquals(Integer.valueOf(101), databaseHelper.getStatistics(2000, 2001, 0, 5)
+                .getCountsByAuthor().get("Tác giả 1"));
+    }
+
+    @Test
+    public void authorIdsShrinkDatabaseAndShareNames() {
+        // The same rows stored both ways side by side, measured in pages
+        context.deleteDatabase(AUTHOR_SIZE_DATABASE_NAME);
+        SQLiteDatabase db = SQLiteDatabase.openOrCreateDatabase(context.getDatabasePath(AUTHOR_SIZE_DATABASE_NAME), null);
+        try {
+            long pageSize = DatabaseUtils.longForQuery(db, "PRAGMA page_size", null);
+            db.execSQL("CREATE TABLE text_books(id INTEGER PRIMARY KEY, title TEXT, author TEXT)");
+            db.execSQL("CREATE TABLE authors(id INTEGER PRIMARY KEY, name TEXT NOT NULL UNIQUE)");
+            db.execSQL("CREATE TABLE id_books(id INTEGER PRIMARY KEY, title TEXT, author_id INTEGER)");
+
+            long before = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null);
+            db.beginTransaction();
+            try {
+                for (int i = 0; i < AUTHOR_CATALOG_SIZE; i++) {
+                    db.execSQL("INSERT INTO text_books(title, author) VALUES (?, ?)",
+                            new Object[]{"Sách " + i, "Tác giả Nguyễn Văn " + (i % AUTHOR_COUNT)});
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            long textPages = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null) - before;
+
+            before = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null);
+            db.beginTransaction();
+            try {
+                db.execSQL("INSERT INTO authors(name) SELECT DISTINCT author FROM text_books");
+                for (int i = 0; i < AUTHOR_CATALOG_SIZE; i++) {
+                    db.execSQL("INSERT INTO id_books(title, author_id) VALUES (?, ?)",
+                            new Object[]{"Sách " + i, 1 + i % AUTHOR_COUNT});
+                }
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+            long idPages = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null) - before;
+
+            Log.i(TAG, String.format(Locale.US, "%d books by %d authors: author text %d KB, author ids %d KB",
+                    AUTHOR_CATALOG_SIZE, AUTHOR_COUNT, textPages * pageSize / 1024, idPages * pageSize / 1024));
+            assertTrue(idPages < textPages);
+        } finally {
+            db.close();
+            context.deleteDatabase(AUTHOR_SIZE_DATABASE_NAME);
+        }
+
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        Date date = new Date();
+        databaseHelper.addBooks(generatedBooks(AUTHOR_CATALOG_SIZE,
+                i -> new Book(0, "Sách " + i, "Tác giả Nguyễn Văn " + (i % AUTHOR_COUNT), date, 1)), null);
+        Set<String> authorStrings = Collections.newSetFromMap(new IdentityHashMap<>());
+        long authorBytes = 0;
+        int loaded = 0;
+        List<Book> page;
+        int afterId = 0;
+        do {
+            page = databaseHelper.getBooksAfterId(afterId, 1000);
+            for (Book book : page) {
+                if (authorStrings.add(book.getAuthor())) {
+                    authorBytes += book.getAuthor().length() * 2L;
+                }
+                afterId = book.getId();
+            }
+            loaded += page.size();
+        } while (!page.isEmpty());
+        Log.i(TAG, String.format(Locale.US, "%d books loaded: %d author strings (~%d KB of chars), one per row before",
+                loaded, authorStrings.size(), authorBytes / 1024));
+        assertEquals(AUTHOR_COUNT, authorStrings.size());
+    }
+
+    @Test
+    public void cursorBookListDecodesRowsOnDemand() {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        List<Book> added = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            added.add(book("Book " + i, "Author", 2000 + i % 10, Category.NOVEL.mask()));
+        }
+        databaseHelper.addBooks(added, null);
+
+        CursorBookList books = databaseHelper.openBooksByYearRangeAndCategories(2000, 2004, 0);
+        List<Book> expected = databaseHelper.getBooksByYearRangeAndCategories(2000, 2004, 0);
+
+        assertEquals(expected.size(), books.size());
+        // Out of order and repeated, across the decoded-row cache
+        for (int position : new int[]{99, 0, 64, 0, expected.size() - 1, 99}) {
+            assertEquals(expected.get(position).getId(), books.get(position).getId());
+        }
+        books.close();
+        assertTrue(books.isClosed());
+    }
+
+    @Test
+    public void cursorBookListDecodesOnItsExecutorWhenGivenOne() {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        List<Book> added = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            added.add(book("Book " + i, "Author", 2000, Category.NOVEL.mask()));
+        }
+        databaseHelper.addBooks(added, null);
+
+        CursorBookList books = databaseHelper.openBooksByYearRangeAndCategories(2000, 2000, 0);
+        Queue<Runnable> decodes = new ArrayDeque<>();
+        List<Integer> decoded = new ArrayList<>();
+        books.decodeOn(decodes::add, Runnable::run, (start, count) -> {
+            decoded.add(start);
+            decoded.add(count);
+        });
+
+        // The first rows come with the list; later ones wait for the executor
+        assertNotNull(books.get(0));
+        assertNull(books.get(150));
+        assertNull(books.get(140));
+        assertEquals(1, decodes.size());
+        decodes.poll().run();
+        assertEquals(Arrays.asList(128, 64), decoded);
+        assertNotNull(books.get(150));
+
+        books.close();
+        // The cursor itself is closed on the executor
+        assertTrue(books.isClosed());
+        assertEquals(1, decodes.size());
+        decodes.poll().run();
+    }
+
+    @Test
+    public void concurrentEditsImportsAndReadsKeepEveryBook() throws Exception {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        int threads = 4;
+        int booksPerThread = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(threads * 2 + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < booksPerThread; i++) {
+                    Book book = book("Edit " + thread + "-" + i, "Author", 2000, Category.NOVEL.mask());
+                    long id = databaseHelper.addBook(book);
+                    assertTrue("id " + id + " assigned twice", ids.add(id));
+                    book.setId((int) id);
+                    book.setTitle("Edited " + thread + "-" + i);
+                    assertEquals(1, databaseHelper.updateBook(book));
+                    assertEquals(book.getTitle(), databaseHelper.getBook((int) id).getTitle());
+                }
+                return null;
+            }));
+            futures.add(executor.submit(() -> {
+                databaseHelper.getAllBooks();
+                databaseHelper.getStatistics(1990, 2010, 0, 5);
+                return null;
+            }));
+        }
+        List<Book> imported = new ArrayList<>();
+        for (int i = 0; i < booksPerThread; i++) {
+            imported.add(book("Import " + i, "Author", 2001, Category.SCIENCE.mask()));
+        }
+        futures.add(executor.submit(() -> databaseHelper.addBooks(imported, null)));
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        for (Book book : imported) {
+            assertTrue("id " + book.getId() + " assigned twice", ids.add((long) book.getId()));
+        }
+        assertEquals(threads * booksPerThread + imported.size(), databaseHelper.getAllBooks().size());
+        GroupCommitWriter writer = databaseHelper.getWriter();
+        assertEquals(threads * booksPerThread * 2, writer.getWriteCount());
+        assertTrue(writer.getCommitCount() <= writer.getWriteCount());
+    }
+
+    @Test
+    public void statisticsTableMatchesRecountAfterRandomWrites() {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        Random random = new Random(17);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int operation = random.nextInt(10);
+            if (operation < 5 || books.isEmpty()) {
+                Book book = randomBook(random, "Book " + i);
+                book.setId((int) databaseHelper.addBook(book));
+                books.add(book);
+            } else if (operation < 8) {
+                Book book = randomBook(random, "Edited " + i);
+                book.setId(books.get(random.nextInt(books.size())).getId());
+                databaseHelper.updateBook(book);
+            } else {
+                databaseHelper.deleteBook(books.remove(random.nextInt(books.size())).getId());
+            }
+            if (i % 500 == 0) {
+                List<Book> imported = new ArrayList<>();
+                for (int j = 0; j < 20; j++) {
+                    imported.add(randomBook(random, "Import " + i + "-" + j));
+                }
+                databaseHelper.addBooks(imported, null);
+                books.addAll(imported);
+            }
+        }
+
+        assertEquals(recountStatistics(), readStatisticsTable());
+        assertEquals(books.size(), databaseHelper.getStatistics(1900, 2030, 0, 5).getTotalCount());
+
+        // A damaged table is repaired by a rebuild
+        databaseHelper.getWritableDatabase().execSQL("UPDATE book_stats SET book_count = book_count + 5");
+        databaseHelper.rebuildStatistics();
+        assertEquals(recountStatistics(), readStatisticsTable());
+    }
+
+    @Test
+    public void committedWritesPublishChangeEvents() {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        List<BookChangeEvent> events = new ArrayList<>();
+        databaseHelper.getChangeNotifier().addListener(events::add);
+
+        Book book = book("Số đỏ", "Vũ Trọng Phụng", 1936, Category.NOVEL.mask());
+        int id = (int) databaseHelper.addBook(book);
+        book.setId(id);
+        book.setTitle("Số đỏ (tái bản)");
+        databaseHelper.updateBook(book);
+        databaseHelper.deleteBook(id);
+        // Nothing was committed for a book that no longer exists
+        databaseHelper.updateBook(book);
+        databaseHelper.deleteBook(id);
+        databaseHelper.addBooks(Collections.singletonList(book("Tắt đèn", "Ngô Tất Tố", 1939, 0)), null);
+
+        assertEquals(4, events.size());
+        assertEquals(BookChangeEvent.Type.INSERTED, events.get(0).getType());
+        assertEquals(BookChangeEvent.Type.UPDATED, events.get(1).getType());
+        assertEquals(BookChangeEvent.Type.DELETED, events.get(2).getType());
+        assertEquals(id, events.get(2).getBookId());
+        assertEquals(BookChangeEvent.Type.BULK, events.get(3).getType());
+        assertEquals(4, databaseHelper.getChangeNotifier().getVersion());
+    }
+
+    @Test
+    public void composedQueriesMatchFilterAndPageByTitle() {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        Random random = new Random(25);
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Book book = randomBook(random, (random.nextBoolean() ? "Truyện " : "Sách ") + random.nextInt(100));
+            book.setId((int) databaseHelper.addBook(book));
+            books.add(book);
+        }
+
+        BookQuery query = BookQuery.builder().publishedBetween(1950, 2000).categories(Category.NOVEL.mask())
+                .author("Author 3").titlePrefix("Truyện").orderBy(BookQuery.Order.TITLE).limit(7).build();
+        List<Book> pages = new ArrayList<>();
+        List<Book> page = databaseHelper.queryBooks(query);
+        while (!page.isEmpty()) {
+            pages.addAll(page);
+            page = databaseHelper.queryBooks(query.after(page.get(page.size() - 1)));
+        }
+
+        List<Book> expected = new ArrayList<>();
+        for (Book book : books) {
+            int year = EpochDays.year(EpochDays.fromDate(book.getPublishDate()));
+            if (year >= 1950 && year <= 2000 && book.isNovel() && "Author 3".equals(book.getAuthor())
+                    && book.getTitle().startsWith("Truyện")) {
+                expected.add(book);
+            }
+        }
+        Collections.sort(expected, (x, y) -> {
+            int order = x.getTitle().compareTo(y.getTitle());
+            return order != 0 ? order : Integer.compare(x.getId(), y.getId());
+        });
+        assertFalse(expected.isEmpty());
+        assertEquals(expected.size(), pages.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), pages.get(i).getId());
+        }
+        // Every page after the first has the same shape, so its SQL was built once
+        assertTrue(databaseHelper.getQueryShapeCache().getHitCount() > 0);
+    }
+
+    @Test
+    public void importFailingMidChunkLeavesNoIdsForLaterInserts() throws Exception {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        BookImporter importer = new BookImporter(databaseHelper);
+        String header = "title,author,publish_date\n";
+        try {
+            importer.importCsv(new StringReader(header + "A,X,2000-01-01\nB,X,2000-01-02\nC,X,2000-01-03\n"
+                    + "D,X,not a date\n"), null);
+            fail();
+        } catch (IOException expected) {
+            // Nothing of the failed chunk was written
+        }
+        assertEquals(0, databaseHelper.getAllBooks().size());
+
+        // AUTOINCREMENT ids run past those the failed chunk was numbered with
+        for (int i = 0; i < 5; i++) {
+            databaseHelper.addBook(book("Single " + i, "Y", 2001, 0));
+        }
+        StringBuilder csv = new StringBuilder(header);
+        for (int i = 0; i < 10; i++) {
+            csv.append("Imported ").append(i).append(",Z,2002-03-04\n");
+        }
+        assertEquals(10, importer.importCsv(new StringReader(csv.toString()), null));
+
+        Set<Integer> ids = new HashSet<>();
+        for (Book book : databaseHelper.getAllBooks()) {
+            assertTrue(ids.add(book.getId()));
+        }
+        assertEquals(15, ids.size());
+    }
+
+    @Test
+    public void booksWithoutADateStayWithoutOne() {
+        databaseHelper = new DatabaseHelper(context, DATABASE_NAME);
+        Book single = new Book(0, "Không rõ năm", "Khuyết danh", null, Category.NOVEL.mask());
+        single.setId((int) databaseHelper.addBook(single));
+        databaseHelper.addBooks(Collections.singletonList(
+                new Book(0, "Cũng không rõ", "Khuyết danh", null, 0)), null);
+
+        // Read from the table, not the book cache, then saved back after an edit
+        databaseHelper.getBookCache().clear();
+        Book read = databaseHelper.getBook(single.getId());
+        assertNull(read.getPublishDate());
+        read.setTitle("Không rõ năm (sửa)");
+        databaseHelper.updateBook(read);
+
+        assertEquals(2, DatabaseUtils.longForQuery(databaseHelper.getReadableDatabase(),
+                "SELECT COUNT(*) FROM books WHERE publish_date IS NULL", null));
+    }
+
+    private static Book randomBook(Random random, String title) {
+        return book(title, "Author " + random.nextInt(20), 1900 + random.nextInt(130), random.nextInt(8));
+    }
+
+    private List<String> readStatisticsTable() {
+        return rows("SELECT year, categories, book_count FROM book_stats ORDER BY year, categories");
+    }
+
+    private List<String> recountStatistics() {
+        return rows("SELECT CAST(strftime('%Y', publish_date * 86400, 'unixepoch') AS INTEGER) AS y, categories,"
+                + " COUNT(*) FROM books WHERE publish_date IS NOT NULL GROUP BY y, categories ORDER BY y, categories");
+    }
+
+    private List<String> rows(String sql) {
+        List<String> rows = new ArrayList<>();
+        Cursor cursor = databaseHelper.getReadableDatabase().rawQuery(sql, null);
+        while (cursor.moveToNext()) {
+            rows.add(cursor.getInt(0) + "/" + cursor.getInt(1) + "=" + cursor.getInt(2));
+        }
+        cursor.close();
+        return rows;
+    }
+
+    private static Book book(String title, String author, int year, int categories) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(year, Calendar.JUNE, 1);
+        return new Book(0, title, author, calendar.getTime(), categories);
+    }
+
+    // Makes each book as addBooks pulls it, so a large catalog is never held in memory at once
+    private static Iterable<Book> generatedBooks(int count, IntFunction<Book> bookAt) {
+        return () -> new Iterator<Book>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Book next() {
+                return bookAt.apply(next++);
+            }
+        };
+    }
+
+    private static List<Book> concat(List<Book> first, List<Book> second) {
+        List<Book> books = new ArrayList<>(first);
+        books.addAll(second);
+        return books;
+    }
+
+    private static void assertUsesIndex(List<String> plan) {
+        for (String step : plan) {
+            if (step.contains("idx_books_publish_date_categories")) {
+                return;
+            }
+        }
+        fail("Statistics query does not use the publish date index: " + plan);
+    }
+}
@@ -8,48 +8,115 @@ import androidx.recyclerview.widget.RecyclerView;
 import android.app.DatePickerDialog;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.Button;
 import android.widget.CheckBox;
 import android.widget.DatePicker;
+import android.widget.EditText;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import com.example.bookmanagement.adapter.BookAdapter;
-import com.example.bookmanagement.database.DatabaseHelper;
+import com.example.bookmanagement.database.BookChangeEvent;
+import com.example.bookmanagement.database.BookPagingSource;
+import com.example.bookmanagement.database.BookQuery;
 import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.repository.BookRepository;
+import com.example.bookmanagement.snapshot.FirstScreenSnapshot;
 import com.google.android.material.textfield.TextInputEditText;
 
+import java.io.File;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Future;
 
 public class MainActivity extends AppCompatActivity implements BookAdapter.OnBookItemClickListener {
+    private static final String TAG = "MainActivity";
+    // Wait for typing to pause before querying, so each keystroke does not start a search
+    private static final long SEARCH_DEBOUNCE_MS = 300;
+    private static final int SEARCH_LIMIT = 100;
+    // Changes arriving together, e.g. the chunks of an import, cause one refresh
+    private static final long CHANGE_REFRESH_DELAY_MS = 100;
+    private static final String FIRST_SCREEN_FILE = "first_screen.bks";
+
     private RecyclerView recyclerView;
+    private EditText etSearch;
     private BookAdapter bookAdapter;
-    private List<Book> bookList;
-    private DatabaseHelper databaseHelper;
+    private BookRepository bookRepository;
     private Button btnAdd, btnStatistics;
     private SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
+    private final Handler searchHandler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::loadBooks;
+    private final Runnable refreshRunnable = this::refreshBooks;
+    // Change version the list reflects; nothing is re-read on resume while it is current
+    private long shownVersion;
+    private boolean resumed;
+    private String searchQuery = "";
+    private Future<List<Book>> pendingSearch;
+    private File firstScreenFile;
+    // Rows of the first page as last saved, so an unchanged page is not written again
+    private List<Book> savedFirstScreen;
+    private boolean fullyDrawnReported;
+    private long createdAtMillis;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        createdAtMillis = SystemClock.uptimeMillis();
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        databaseHelper = new DatabaseHelper(this);
+        bookRepository = BookRepository.create(this);
         
         recyclerView = findViewById(R.id.recyclerView);
+        etSearch = findViewById(R.id.etSearch);
         btnAdd = findViewById(R.id.btnAdd);
         btnStatistics = findViewById(R.id.btnStatistics);
 
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
+        // Its size comes from the layout constraints, so row changes need no full relayout
+        recyclerView.setHasFixedSize(true);
+        // Rows saved by the last run are shown straight away, then reconciled with the first
+        // page read from the database; the file is small and mapped, not streamed
+        firstScreenFile = new File(getCacheDir(), FIRST_SCREEN_FILE);
+        savedFirstScreen = FirstScreenSnapshot.read(firstScreenFile);
+        // One adapter for the whole screen; new rows are diffed in so the scroll position stays
+        bookAdapter = new BookAdapter(this, savedFirstScreen, this);
+        recyclerView.setAdapter(bookAdapter);
+        if (!savedFirstScreen.isEmpty()) {
+            reportFullyDrawnOnce("snapshot");
+        }
         
+        bookRepository.observeChanges(this::onBookChanged);
+        shownVersion = bookRepository.getChangeVersion();
         loadBooks();
         
+        etSearch.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                searchQuery = s.toString().trim();
+                searchHandler.removeCallbacks(searchRunnable);
+                searchHandler.postDelayed(searchRunnable, SEARCH_DEBOUNCE_MS);
+            }
+        });
+
         btnAdd.setOnClickListener(v -> showBookDialog(null));
         
         btnStatistics.setOnClickListener(v -> {
@@ -61,18 +128,115 @@ public class MainActivity extends AppCompatActivity implements BookAdapter.OnBoo
     @Override
     protected void onResume() {
         super.onResume();
-        loadBooks();
+        resumed = true;
+        // Only books changed while another screen was in front need to be re-read
+        if (bookRepository.getChangeVersion() != shownVersion) {
+            refreshBooks();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        resumed = false;
+        super.onPause();
+    }
+    
+    @Override
+    protected void onDestroy() {
+        searchHandler.removeCallbacks(searchRunnable);
+        searchHandler.removeCallbacks(refreshRunnable);
+        bookRepository.cancelAll();
+        super.onDestroy();
     }
     
     private void loadBooks() {
-        bookList = databaseHelper.getAllBooks();
-        bookAdapter = new BookAdapter(this, bookList, this);
-        recyclerView.setAdapter(bookAdapter);
+        shownVersion = bookRepository.getChangeVersion();
+        // A search still running for older input would only overwrite the newer result
+        if (pendingSearch != null) {
+            pendingSearch.cancel(true);
+            pendingSearch = null;
+        }
+
+        if (!searchQuery.isEmpty()) {
+            String query = searchQuery;
+            pendingSearch = bookRepository.searchBooks(query, SEARCH_LIMIT, books -> {
+                if (query.equals(searchQuery)) {
+                    bookAdapter.submitList(books);
+                }
+            });
+            return;
+        }
+
+        // Only the first page is read here; the adapter fetches more while scrolling
+        BookPagingSource pagingSource = new BookPagingSource((after, limit, callback) ->
+                bookRepository.queryBooks(BookQuery.builder().orderBy(BookQuery.Order.ID)
+                        .after(after).limit(limit).build(), page -> {
+                    if (after == null) {
+                        onFirstPageLoaded(page);
+                    }
+                    callback.onPageLoaded(page);
+                }));
+        bookAdapter.setPagingSource(pagingSource);
+    }
+
+    // The first page is re-read after every change, so saving it here keeps the file current
+    private void onFirstPageLoaded(List<Book> page) {
+        reportFullyDrawnOnce("database");
+        if (FirstScreenSnapshot.differs(savedFirstScreen, page)) {
+            savedFirstScreen = page;
+            bookRepository.saveFirstScreen(firstScreenFile, page, null);
+        }
+    }
+
+    // Marks the launch as complete for time-to-full-display ("Fully drawn" in logcat), and logs
+    // where the first rows came from. A launch without the snapshot file (cleared cache, first
+    // run) takes the database path as before it existed, so the two can be compared on one build.
+    private void reportFullyDrawnOnce(String source) {
+        if (!fullyDrawnReported) {
+            fullyDrawnReported = true;
+            reportFullyDrawn();
+            Log.i(TAG, "first rows from " + source + " after " + (SystemClock.uptimeMillis() - createdAtMillis) + " ms");
+        }
+    }
+
+    // Apply a committed change to the list; while paused, onResume() catches up instead
+    private void onBookChanged(BookChangeEvent event) {
+        if (!resumed || event.getVersion() <= shownVersion) {
+            return;
+        }
+        if (event.getType() == BookChangeEvent.Type.UPDATED && searchQuery.isEmpty()) {
+            // Only the edited row is replaced; the book is normally still in the book cache
+            shownVersion = event.getVersion();
+            bookRepository.getBook(event.getBookId(), book -> {
+                if (book != null) {
+                    bookAdapter.replaceBook(book);
+                }
+            });
+            return;
+        }
+        searchHandler.removeCallbacks(refreshRunnable);
+        searchHandler.postDelayed(refreshRunnable, CHANGE_REFRESH_DELAY_MS);
+    }
+
+    // Pick up books added, edited or deleted since the rows were read, keeping the list in place
+    private void refreshBooks() {
+        searchHandler.removeCallbacks(refreshRunnable);
+        if (searchQuery.isEmpty()) {
+            shownVersion = bookRepository.getChangeVersion();
+            bookAdapter.refresh();
+        } else {
+            loadBooks();
+        }
     }
 
     @Override
     public void onBookItemClick(Book book, int position) {
-        showBookDialog(book);
+        // Read back by id so the dialog shows the stored values; usually a book cache hit
+        bookRepository.getBook(book.getId(), storedBook -> {
+            if (storedBook != null) {
+                showBookDialog(storedBook);
+            }
+        });
     }
     
     private void showBookDialog(Book book) {
@@ -106,8 +270,9 @@ public class MainActivity extends AppCompatActivity implements BookAdapter.OnBoo
             // Fill in book details
             etBookTitle.setText(book.getTitle());
             etBookAuthor.setText(book.getAuthor());
+            // A book without a date keeps none unless one is picked
             selectedDate[0] = book.getPublishDate();
-            tvPublishDate.setText(dateFormat.format(selectedDate[0]));
+            tvPublishDate.setText(selectedDate[0] != null ? dateFormat.format(selectedDate[0]) : "");
             cbScience.setChecked(book.isScience());
             cbNovel.setChecked(book.isNovel());
             cbChildren.setChecked(book.isChildren());
@@ -151,11 +316,10 @@ public class MainActivity extends AppCompatActivity implements BookAdapter.OnBoo
                 new AlertDialog.Builder(MainActivity.this)
                         .setTitle("Xác nhận xóa")
                         .setMessage("Bạn có chắc chắn muốn xóa sách này?")
-                        .setPositiveButton("Xóa", (dialogConfirm, whichConfirm) -> {
-                            databaseHelper.deleteBook(book.getId());
-                            loadBooks();
-                            Toast.makeText(MainActivity.this, "Đã xóa sách", Toast.LENGTH_SHORT).show();
-                        })
+                        .setPositiveButton("Xóa", (dialogConfirm, whichConfirm) ->
+                                bookRepository.deleteBook(book.getId(), result -> {
+                                    Toast.makeText(MainActivity.this, "Đã xóa sách", Toast.LENGTH_SHORT).show();
+                                }))
                         .setNegativeButton("Hủy", null)
                         .show();
             });
@@ -188,20 +352,21 @@ public class MainActivity extends AppCompatActivity implements BookAdapter.OnBoo
             
             // Create or update book
             if (isEdit) {
-                // Update existing book
-                book.setTitle(title);
-                book.setAuthor(author);
-                book.setPublishDate(selectedDate[0]);
-                book.setScience(cbScience.isChecked());
-                book.setNovel(cbNovel.isChecked());
-                book.setChildren(cbChildren.isChecked());
+                // Update a copy; the book shown in the list keeps its old values until the diff
+                Book editedBook = new Book(book);
+                editedBook.setTitle(title);
+                editedBook.setAuthor(author);
+                editedBook.setPublishDate(selectedDate[0]);
+                editedBook.setScience(cbScience.isChecked());
+                editedBook.setNovel(cbNovel.isChecked());
+                editedBook.setChildren(cbChildren.isChecked());
                 
-                databaseHelper.updateBook(book);
-                Toast.makeText(MainActivity.this, "Đã cập nhật sách", Toast.LENGTH_SHORT).show();
+                bookRepository.updateBook(editedBook, result -> {
+                    Toast.makeText(MainActivity.this, "Đã cập nhật sách", Toast.LENGTH_SHORT).show();
+                });
             } else {
                 // Add new book
                 Book newBook = new Book();
-                newBook.setId(databaseHelper.getNextId());
                 newBook.setTitle(title);
                 newBook.setAuthor(author);
                 newBook.setPublishDate(selectedDate[0]);
@@ -209,11 +374,11 @@ public class MainActivity extends AppCompatActivity implements BookAdapter.OnBoo
                 newBook.setNovel(cbNovel.isChecked());
                 newBook.setChildren(cbChildren.isChecked());
                 
-                databaseHelper.addBook(newBook);
-                Toast.makeText(MainActivity.this, "Đã thêm sách mới", Toast.LENGTH_SHORT).show();
+                bookRepository.addBook(newBook, id -> {
+                    Toast.makeText(MainActivity.this, "Đã thêm sách mới", Toast.LENGTH_SHORT).show();
+                });
             }
             
-            loadBooks();
             dialog.dismiss();
         });
     }
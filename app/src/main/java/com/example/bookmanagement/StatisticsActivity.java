@@ -5,6 +5,8 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.View;
 import android.widget.Button;
 import android.widget.CheckBox;
@@ -14,28 +16,48 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.example.bookmanagement.adapter.BookAdapter;
-import com.example.bookmanagement.database.DatabaseHelper;
-import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.database.BookQuery;
+import com.example.bookmanagement.database.CursorBookList;
+import com.example.bookmanagement.model.BookStatistics;
+import com.example.bookmanagement.model.Category;
+import com.example.bookmanagement.repository.BookRepository;
 
 import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 public class StatisticsActivity extends AppCompatActivity {
+    // Authors listed in the summary, most books first
+    private static final int TOP_AUTHORS = 5;
+    // Changes arriving together, e.g. the chunks of an import, cause one new search
+    private static final long CHANGE_REFRESH_DELAY_MS = 300;
+    
     private EditText etStartYear, etEndYear;
     private CheckBox cbScience, cbNovel, cbChildren;
     private Button btnSearch;
-    private TextView tvResultCount;
+    private TextView tvResultCount, tvStatisticsSummary;
     private RecyclerView recyclerViewStatistics;
     private BookAdapter bookAdapter;
-    private DatabaseHelper databaseHelper;
+    private BookRepository bookRepository;
+    private Future<BookStatistics> pendingSearch;
+    private Future<CursorBookList> pendingBooks;
+    // Matching books of the last search, read from the cursor as rows are bound
+    private CursorBookList resultBooks;
+    private int searchGeneration;
+    // Filter of the result on screen and the change version it was read at
+    private boolean hasResult;
+    private int shownStartYear, shownEndYear, shownCategoryMask;
+    private long shownVersion;
+    private final Handler refreshHandler = new Handler(Looper.getMainLooper());
+    private final Runnable refreshRunnable = () -> search(shownStartYear, shownEndYear, shownCategoryMask);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_statistics);
 
-        databaseHelper = new DatabaseHelper(this);
+        bookRepository = BookRepository.create(this);
         
         // Initialize views
         etStartYear = findViewById(R.id.etStartYear);
@@ -45,6 +67,7 @@ public class StatisticsActivity extends AppCompatActivity {
         cbChildren = findViewById(R.id.cbChildren);
         btnSearch = findViewById(R.id.btnSearch);
         tvResultCount = findViewById(R.id.tvResultCount);
+        tvStatisticsSummary = findViewById(R.id.tvStatisticsSummary);
         recyclerViewStatistics = findViewById(R.id.recyclerViewStatistics);
         
         // Set default years (current year - 10 to current year)
@@ -54,6 +77,8 @@ public class StatisticsActivity extends AppCompatActivity {
         
         // Set up RecyclerView
         recyclerViewStatistics.setLayoutManager(new LinearLayoutManager(this));
+        // Its size comes from the layout weight, so row changes need no full relayout
+        recyclerViewStatistics.setHasFixedSize(true);
         
         // Set up empty adapter initially
         bookAdapter = new BookAdapter(this, new ArrayList<>(), null);
@@ -62,10 +87,28 @@ public class StatisticsActivity extends AppCompatActivity {
         // Set up search button
         btnSearch.setOnClickListener(v -> performSearch());
 
+        // The shown result is searched again only when books actually changed
+        bookRepository.observeChanges(event -> {
+            if (hasResult && event.getVersion() > shownVersion) {
+                refreshHandler.removeCallbacks(refreshRunnable);
+                refreshHandler.postDelayed(refreshRunnable, CHANGE_REFRESH_DELAY_MS);
+            }
+        });
+
         ImageButton btnBack = findViewById(R.id.btnBack);
         btnBack.setOnClickListener(v -> finish());
     }
     
+    @Override
+    protected void onDestroy() {
+        refreshHandler.removeCallbacks(refreshRunnable);
+        bookRepository.cancelAll();
+        if (resultBooks != null) {
+            resultBooks.close();
+        }
+        super.onDestroy();
+    }
+    
     private void performSearch() {
         String startYearStr = etStartYear.getText().toString().trim();
         String endYearStr = etEndYear.getText().toString().trim();
@@ -89,19 +132,92 @@ public class StatisticsActivity extends AppCompatActivity {
             return;
         }
         
-        boolean isScience = cbScience.isChecked();
-        boolean isNovel = cbNovel.isChecked();
-        boolean isChildren = cbChildren.isChecked();
+        int categoryMask = Category.maskOf(cbScience.isChecked(), cbNovel.isChecked(), cbChildren.isChecked());
+        search(startYear, endYear, categoryMask);
+    }
+
+    private void search(int startYear, int endYear, int categoryMask) {
+        refreshHandler.removeCallbacks(refreshRunnable);
+        hasResult = true;
+        shownStartYear = startYear;
+        shownEndYear = endYear;
+        shownCategoryMask = categoryMask;
+        shownVersion = bookRepository.getChangeVersion();
+
+        // A newer search replaces any one still running
+        if (pendingSearch != null) {
+            pendingSearch.cancel(true);
+        }
+        if (pendingBooks != null) {
+            pendingBooks.cancel(true);
+        }
+        int generation = ++searchGeneration;
+        
+        // Totals come from GROUP BY queries, so they show up before any book is read
+        pendingSearch = bookRepository.getStatistics(startYear, endYear, categoryMask, TOP_AUTHORS,
+                statistics -> {
+                    pendingSearch = null;
+                    
+                    // Update result count
+                    tvResultCount.setText("Kết quả: " + statistics.getTotalCount() + " sách");
+                    tvStatisticsSummary.setText(formatSummary(statistics));
+                });
         
-        // Get books by year range and categories
-        List<Book> filteredBooks = databaseHelper.getBooksByYearRangeAndCategories(
-                startYear, endYear, isScience, isNovel, isChildren);
+        // The matching books stay in the cursor and are decoded as the list shows them
+        BookQuery query = BookQuery.builder().publishedBetween(startYear, endYear).categories(categoryMask).build();
+        pendingBooks = bookRepository.openBooks(query, books -> {
+            if (generation != searchGeneration) {
+                // Finished just before a newer search cancelled it
+                books.close();
+                return;
+            }
+            pendingBooks = null;
+            // Rows past the first block are decoded off the main thread and filled in when ready
+            bookRepository.decodeInBackground(books, (start, count) -> {
+                if (books == resultBooks) {
+                    bookAdapter.notifyItemRangeChanged(start, count);
+                }
+            });
+            bookAdapter.swapList(books);
+            if (resultBooks != null) {
+                resultBooks.close();
+            }
+            resultBooks = books;
+        });
+    }
+    
+    private String formatSummary(BookStatistics statistics) {
+        StringBuilder summary = new StringBuilder();
+        for (Category category : Category.values()) {
+            if (summary.length() > 0) {
+                summary.append(" · ");
+            }
+            summary.append(category.getLabel()).append(": ").append(statistics.getCategoryCount(category));
+        }
         
-        // Update result count
-        tvResultCount.setText("Kết quả: " + filteredBooks.size() + " sách");
+        if (!statistics.getCountsByYear().isEmpty()) {
+            summary.append("\nTheo năm: ");
+            boolean first = true;
+            for (Map.Entry<Integer, Integer> entry : statistics.getCountsByYear().entrySet()) {
+                if (!first) {
+                    summary.append(", ");
+                }
+                summary.append(entry.getKey()).append(": ").append(entry.getValue());
+                first = false;
+            }
+        }
         
-        // Update adapter
-        bookAdapter = new BookAdapter(this, filteredBooks, null);
-        recyclerViewStatistics.setAdapter(bookAdapter);
+        if (!statistics.getCountsByAuthor().isEmpty()) {
+            summary.append("\nTác giả nhiều sách nhất: ");
+            boolean first = true;
+            for (Map.Entry<String, Integer> entry : statistics.getCountsByAuthor().entrySet()) {
+                if (!first) {
+                    summary.append(", ");
+                }
+                summary.append(entry.getKey()).append(" (").append(entry.getValue()).append(")");
+                first = false;
+            }
+        }
+        return summary.toString();
     }
 }
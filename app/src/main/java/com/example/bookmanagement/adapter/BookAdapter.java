@@ -8,20 +8,69 @@ import android.widget.CheckBox;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.bookmanagement.R;
+import com.example.bookmanagement.database.BookPagingSource;
+import com.example.bookmanagement.database.EpochDays;
 import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.repository.MainThreadExecutor;
 
-import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
+// Rows change through diffs computed off the main thread (by book id, then by content),
+// so an edit rebinds only the rows that changed and the scroll position is kept.
+// Binding a row allocates nothing: ids and dates are written into char buffers owned by
+// the view holder, and one click listener serves every row.
 public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder> {
-    private List<Book> bookList;
+    // One diff at a time, shared by every adapter
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "book-diff");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final int VIEW_TYPE_BOOK = 0;
+    // About two screens of rows: enough for a fling without inflating new ones
+    private static final int RECYCLED_VIEW_POOL_SIZE = 12;
+    // Rows just scrolled off are kept bound, so scrolling back does not rebind them
+    private static final int ITEM_VIEW_CACHE_SIZE = 4;
+
+    private final Executor mainThreadExecutor = new MainThreadExecutor();
+    private final TimeZone zone = TimeZone.getDefault();
+    // Rows currently shown; replaced only together with the notifications that describe the change
+    private List<Book> displayedBooks = Collections.emptyList();
+    // Set instead of a plain list when rows are loaded page by page while scrolling
+    private BookPagingSource pagingSource;
+    // Paging source displayedBooks was taken from, null for a submitted list
+    private BookPagingSource displayedSource;
+    private boolean diffing;
+    // Bumped by swapList so a diff still running against the old rows is not applied
+    private int listGeneration;
+    // Newest rows submitted while a diff was running; diffed as soon as it finishes
+    private List<Book> pendingBooks;
+    private BookPagingSource pendingSource;
     private Context context;
     private OnBookItemClickListener listener;
-    private SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
+    // The clicked row is looked up from the holder's position at click time
+    private final View.OnClickListener itemClickListener = view -> {
+        BookViewHolder holder = (BookViewHolder) view.getTag();
+        int position = holder.getBindingAdapterPosition();
+        if (listener == null || position == RecyclerView.NO_POSITION) {
+            return;
+        }
+        Book book = displayedBooks.get(position);
+        if (book != null) {
+            listener.onBookItemClick(book, position);
+        }
+    };
 
     public interface OnBookItemClickListener {
         void onBookItemClick(Book book, int position);
@@ -29,55 +78,232 @@ public class BookAdapter extends RecyclerView.Adapter<BookAdapter.BookViewHolder
 
     public BookAdapter(Context context, List<Book> bookList, OnBookItemClickListener listener) {
         this.context = context;
-        this.bookList = bookList;
+        setHasStableIds(true);
+        this.displayedBooks = new ArrayList<>(bookList);
+        this.listener = listener;
+    }
+
+    public BookAdapter(Context context, BookPagingSource pagingSource, OnBookItemClickListener listener) {
+        this.context = context;
+        setHasStableIds(true);
         this.listener = listener;
+        setPagingSource(pagingSource);
+    }
+
+    // Show rows from a new paging source; the first page is diffed against the rows shown now
+    public void setPagingSource(BookPagingSource source) {
+        pagingSource = source;
+        source.setListener(new BookPagingSource.Listener() {
+            @Override
+            public void onRowsAppended(int start, int count) {
+                if (showDirectly(source)) {
+                    displayedBooks = source.snapshot();
+                    notifyItemRangeInserted(start, count);
+                }
+            }
+
+            @Override
+            public void onRowsReloaded(int start, int count) {
+                if (showDirectly(source)) {
+                    displayedBooks = source.snapshot();
+                    notifyItemRangeChanged(start, count);
+                }
+            }
+
+            @Override
+            public void onRefreshed() {
+                if (source == pagingSource) {
+                    submit(source.snapshot(), source);
+                }
+            }
+        });
+        if (source.size() == 0) {
+            source.loadNextPage();
+        } else {
+            submit(source.snapshot(), source);
+        }
+    }
+
+    // Appended and reloaded pages are applied without a diff when nothing else is queued;
+    // otherwise they join the queued diff so the rows never get out of step with the source
+    private boolean showDirectly(BookPagingSource source) {
+        if (source != pagingSource) {
+            return false;
+        }
+        if (diffing || displayedSource != source) {
+            submit(source.snapshot(), source);
+            return false;
+        }
+        return true;
+    }
+
+    // Show a plain list of books, e.g. search results
+    public void submitList(List<Book> books) {
+        pagingSource = null;
+        submit(new ArrayList<>(books), null);
+    }
+
+    // Show unrelated rows, e.g. the result of a new query, without diffing against the old
+    // ones. The list is used as is, so it must not change afterwards; a CursorBookList
+    // stays undecoded until rows are bound.
+    public void swapList(List<Book> books) {
+        pagingSource = null;
+        pendingBooks = null;
+        pendingSource = null;
+        listGeneration++;
+        displayedBooks = books;
+        displayedSource = null;
+        notifyDataSetChanged();
+    }
+
+    // Re-read the loaded pages after books were added, edited or deleted
+    public void refresh() {
+        if (pagingSource != null) {
+            pagingSource.refresh();
+        }
+    }
+
+    // Show an edited book in place if its row is loaded; returns false if it is not
+    public boolean replaceBook(Book book) {
+        return pagingSource != null && pagingSource.replace(book) != -1;
+    }
+
+    private void submit(List<Book> books, BookPagingSource source) {
+        pendingBooks = books;
+        pendingSource = source;
+        if (!diffing) {
+            diffNext();
+        }
+    }
+
+    private void diffNext() {
+        List<Book> oldBooks = displayedBooks;
+        List<Book> newBooks = pendingBooks;
+        BookPagingSource newSource = pendingSource;
+        pendingBooks = null;
+        pendingSource = null;
+        diffing = true;
+        int generation = listGeneration;
+        DIFF_EXECUTOR.execute(() -> {
+            DiffUtil.DiffResult result = DiffUtil.calculateDiff(new BookDiffCallback(oldBooks, newBooks), false);
+            mainThreadExecutor.execute(() -> {
+                if (generation == listGeneration) {
+                    displayedBooks = newBooks;
+                    displayedSource = newSource;
+                    result.dispatchUpdatesTo(this);
+                }
+                diffing = false;
+                if (pendingBooks != null) {
+                    diffNext();
+                }
+            });
+        });
+    }
+
+    private final RecyclerView.OnScrollListener pagingScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            if (pagingSource == null) {
+                return;
+            }
+            RecyclerView.LayoutManager layoutManager = recyclerView.getLayoutManager();
+            if (!(layoutManager instanceof LinearLayoutManager)) {
+                return;
+            }
+            int lastVisible = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+            if (pagingSource.shouldLoadMore(lastVisible)) {
+                // Rows arrive through the paging listener on a later main-thread message,
+                // never inside this scroll callback
+                pagingSource.loadNextPage();
+            }
+        }
+    };
+
+    @Override
+    public void onAttachedToRecyclerView(@NonNull RecyclerView recyclerView) {
+        super.onAttachedToRecyclerView(recyclerView);
+        recyclerView.addOnScrollListener(pagingScrollListener);
+        recyclerView.setItemViewCacheSize(ITEM_VIEW_CACHE_SIZE);
+        // Each list has its own pool: the two lists are in different activities, whose views
+        // must not outlive them in a pool shared between the screens
+        recyclerView.getRecycledViewPool().setMaxRecycledViews(VIEW_TYPE_BOOK, RECYCLED_VIEW_POOL_SIZE);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(@NonNull RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(pagingScrollListener);
+        super.onDetachedFromRecyclerView(recyclerView);
     }
 
     @NonNull
     @Override
     public BookViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
         View view = LayoutInflater.from(context).inflate(R.layout.item_book, parent, false);
-        return new BookViewHolder(view);
+        BookViewHolder holder = new BookViewHolder(view);
+        view.setTag(holder);
+        view.setOnClickListener(itemClickListener);
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull BookViewHolder holder, int position) {
-        Book book = bookList.get(position);
-        
-        holder.tvBookId.setText(book.getFormattedId());
+        Book book = getItem(position);
+        if (book == null) {
+            // Page is being re-read, or the row was removed after its page had been read
+            holder.tvBookId.setText("");
+            holder.tvBookTitle.setText("");
+            holder.tvBookAuthor.setText("");
+            holder.tvPublishDate.setText("");
+            return;
+        }
+
+        holder.tvBookId.setText(holder.idText, 0, BookTextFormatter.formatId(book.getId(), holder.idText));
         holder.tvBookTitle.setText(book.getTitle());
         holder.tvBookAuthor.setText(book.getAuthor());
-        holder.tvPublishDate.setText(dateFormat.format(book.getPublishDate()));
-        
+        if (book.getPublishDate() != null) {
+            long epochDay = EpochDays.fromMillis(book.getPublishDate().getTime(), zone);
+            holder.tvPublishDate.setText(holder.dateText, 0, BookTextFormatter.formatDate(epochDay, holder.dateText));
+        } else {
+            holder.tvPublishDate.setText("");
+        }
+
+        // The checkboxes are disabled in item_book.xml; only their state changes per row
         holder.cbScience.setChecked(book.isScience());
         holder.cbNovel.setChecked(book.isNovel());
         holder.cbChildren.setChecked(book.isChildren());
-        
-        // Disable checkbox interaction in the list view
-        holder.cbScience.setEnabled(false);
-        holder.cbNovel.setEnabled(false);
-        holder.cbChildren.setEnabled(false);
-        
-        holder.itemView.setOnClickListener(v -> {
-            if (listener != null) {
-                listener.onBookItemClick(book, position);
-            }
-        });
+    }
+
+    // Book ids; rows whose page is not loaded get a negative id of their own
+    @Override
+    public long getItemId(int position) {
+        Book book = displayedBooks.get(position);
+        return book != null ? book.getId() : -2L - position;
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return VIEW_TYPE_BOOK;
     }
 
     @Override
     public int getItemCount() {
-        return bookList.size();
+        return displayedBooks.size();
     }
 
-    public void updateData(List<Book> newBooks) {
-        this.bookList = newBooks;
-        notifyDataSetChanged();
+    private Book getItem(int position) {
+        if (pagingSource != null && pagingSource == displayedSource && position < pagingSource.size()) {
+            // Keeps the paging window around this row and re-reads its page if it was evicted
+            pagingSource.get(position);
+        }
+        return displayedBooks.get(position);
     }
 
     public static class BookViewHolder extends RecyclerView.ViewHolder {
         TextView tvBookId, tvBookTitle, tvBookAuthor, tvPublishDate;
         CheckBox cbScience, cbNovel, cbChildren;
+        // Reused for every row this holder shows; TextView copies out of them
+        final char[] idText = new char[BookTextFormatter.BUFFER_SIZE];
+        final char[] dateText = new char[BookTextFormatter.BUFFER_SIZE];
 
         public BookViewHolder(@NonNull View itemView) {
             super(itemView);
@@ -0,0 +1,49 @@
+package com.example.bookmanagement.adapter;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.bookmanagement.model.Book;
+
+import java.util.List;
+
+// Matches rows by book id and compares what the row shows.
+// Null entries are rows whose page is not in memory; two of them count as the same unchanged row.
+class BookDiffCallback extends DiffUtil.Callback {
+    private final List<Book> oldBooks;
+    private final List<Book> newBooks;
+
+    BookDiffCallback(List<Book> oldBooks, List<Book> newBooks) {
+        this.oldBooks = oldBooks;
+        this.newBooks = newBooks;
+    }
+
+    @Override
+    public int getOldListSize() {
+        return oldBooks.size();
+    }
+
+    @Override
+    public int getNewListSize() {
+        return newBooks.size();
+    }
+
+    @Override
+    public boolean areItemsTheSame(int oldPosition, int newPosition) {
+        Book oldBook = oldBooks.get(oldPosition);
+        Book newBook = newBooks.get(newPosition);
+        if (oldBook == null || newBook == null) {
+            return oldBook == newBook;
+        }
+        return oldBook.getId() == newBook.getId();
+    }
+
+    @Override
+    public boolean areContentsTheSame(int oldPosition, int newPosition) {
+        Book oldBook = oldBooks.get(oldPosition);
+        Book newBook = newBooks.get(newPosition);
+        if (oldBook == null || newBook == null) {
+            return oldBook == newBook;
+        }
+        return oldBook.hasSameContent(newBook);
+    }
+}
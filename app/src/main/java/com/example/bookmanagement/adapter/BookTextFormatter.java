@@ -0,0 +1,60 @@
+package com.example.bookmanagement.adapter;
+
+// Writes the id and publish date shown in a row into a char buffer owned by the view
+// holder, so binding a row creates no Strings. Output matches String.format("%03d") and
+// SimpleDateFormat("dd/MM/yyyy") with ASCII digits.
+final class BookTextFormatter {
+    // Enough for any int id and any epoch-day date
+    static final int BUFFER_SIZE = 16;
+
+    private BookTextFormatter() {
+    }
+
+    // Id zero-padded to at least 3 digits; returns the length written
+    static int formatId(int id, char[] out) {
+        if (id < 0) {
+            // The sign counts towards the width, as in %03d
+            out[0] = '-';
+            return writeDigits(-(long) id, 2, out, 1);
+        }
+        return writeDigits(id, 3, out, 0);
+    }
+
+    // dd/MM/yyyy of a day counted from 1970-01-01 (proleptic Gregorian, as java.time);
+    // returns the length written
+    static int formatDate(long epochDay, char[] out) {
+        // Days to civil date, counting eras of 400 years from 0000-03-01
+        long z = epochDay + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long dayOfEra = z - era * 146_097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36_524 - dayOfEra / 146_096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        long day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        long month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        int length = writeDigits(day, 2, out, 0);
+        out[length++] = '/';
+        length = writeDigits(month, 2, out, length);
+        out[length++] = '/';
+        if (year < 0) {
+            out[length++] = '-';
+            year = -year;
+        }
+        return writeDigits(year, 4, out, length);
+    }
+
+    private static int writeDigits(long value, int minDigits, char[] out, int start) {
+        int digits = 1;
+        for (long rest = value / 10; rest != 0; rest /= 10) {
+            digits++;
+        }
+        digits = Math.max(digits, minDigits);
+        for (int i = start + digits - 1; i >= start; i--) {
+            out[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return start + digits;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.bookmanagement.analytics;
+
+import com.example.bookmanagement.database.BookChangeEvent;
+import com.example.bookmanagement.database.BookChangeNotifier;
+import com.example.bookmanagement.database.BookDataSource;
+import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.model.BookStatistics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Keeps a ColumnarCatalog in step with a data source. The catalog is loaded on first use;
+// afterwards change events only record which ids moved, and those rows are re-read in one
+// go before the next query, so a burst of edits costs one refresh. A bulk change (an import
+// chunk) reloads everything. Call close() to stop listening.
+// Queries are meant for a background thread, like the rest of the data source API.
+public class BookAnalytics implements BookChangeNotifier.Listener {
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    private final BookDataSource dataSource;
+    private final ColumnarCatalog catalog;
+    // Guarded by this
+    private final Set<Integer> changedIds = new LinkedHashSet<>();
+    private boolean reloadNeeded = true;
+    // Serializes refreshes; separate from this so events are not held up by a reload
+    private final Object refreshLock = new Object();
+
+    public BookAnalytics(BookDataSource dataSource) {
+        this(dataSource, new ColumnarCatalog());
+    }
+
+    public BookAnalytics(BookDataSource dataSource, ColumnarCatalog catalog) {
+        this.dataSource = dataSource;
+        this.catalog = catalog;
+        dataSource.getChangeNotifier().addListener(this);
+    }
+
+    public void close() {
+        dataSource.getChangeNotifier().removeListener(this);
+    }
+
+    @Override
+    public synchronized void onBookChanged(BookChangeEvent event) {
+        if (event.getType() == BookChangeEvent.Type.BULK) {
+            reloadNeeded = true;
+            changedIds.clear();
+        } else if (!reloadNeeded) {
+            changedIds.add(event.getBookId());
+        }
+    }
+
+    public BookStatistics getStatistics(int startYear, int endYear, int categoryMask, String author,
+                                        int authorLimit) {
+        return refresh().getStatistics(startYear, endYear, categoryMask, author, authorLimit);
+    }
+
+    public int[] findIds(int startYear, int endYear, int categoryMask, String author) {
+        return refresh().findIds(startYear, endYear, categoryMask, author);
+    }
+
+    // Apply pending changes and return the up-to-date catalog
+    public ColumnarCatalog refresh() {
+        synchronized (refreshLock) {
+            boolean reload;
+            List<Integer> ids;
+            synchronized (this) {
+                reload = reloadNeeded;
+                ids = new ArrayList<>(changedIds);
+                reloadNeeded = false;
+                changedIds.clear();
+            }
+
+            try {
+                if (reload) {
+                    // Loaded aside and swapped in whole, so a failed reload leaves the old rows
+                    ColumnarCatalog loaded = catalog.newEmpty();
+                    int afterId = 0;
+                    List<Book> page;
+                    do {
+                        page = dataSource.getBooksAfterId(afterId, LOAD_PAGE_SIZE);
+                        loaded.putAll(page);
+                        if (!page.isEmpty()) {
+                            afterId = page.get(page.size() - 1).getId();
+                        }
+                    } while (page.size() == LOAD_PAGE_SIZE);
+                    catalog.replaceWith(loaded);
+                } else {
+                    for (int id : ids) {
+                        Book book = dataSource.getBook(id);
+                        if (book != null) {
+                            catalog.put(book);
+                        } else {
+                            catalog.remove(id);
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                // Still pending, so the next query tries again; re-applying an id is harmless
+                synchronized (this) {
+                    if (reload) {
+                        reloadNeeded = true;
+                        changedIds.clear();
+                    } else if (!reloadNeeded) {
+                        changedIds.addAll(ids);
+                    }
+                }
+                throw e;
+            }
+            return catalog;
+        }
+    }
+}
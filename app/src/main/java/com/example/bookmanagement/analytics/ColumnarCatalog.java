@@ -0,0 +1,484 @@
+package com.example.bookmanagement.analytics;
+
+import com.example.bookmanagement.database.EpochDays;
+import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.model.BookStatistics;
+import com.example.bookmanagement.model.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// The filterable fields of every book in primitive arrays, one entry per row:
+// publish epoch day, publish year, category mask and author dictionary code. Filters and
+// totals are answered by scanning the arrays in parallel on the common fork/join pool,
+// without building a Book or touching SQLite.
+// Rows stay dense: removing a book moves the last row into its place. Queries share a
+// read lock and run concurrently; put() and remove() take the write lock.
+public class ColumnarCatalog {
+    // Rows per fork/join leaf; smaller ranges are not worth a task of their own
+    private static final int SCAN_CHUNK = 1 << 16;
+    // publish day of books without a date; no year range includes it
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    // Every value a book's category mask can take
+    private static final int CATEGORY_COMBINATIONS = Category.allMask() + 1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ForkJoinPool pool;
+
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] days = new int[INITIAL_CAPACITY];
+    private short[] years = new short[INITIAL_CAPACITY];
+    private byte[] categories = new byte[INITIAL_CAPACITY];
+    private int[] authorCodes = new int[INITIAL_CAPACITY];
+    private int size;
+    private Map<Integer, Integer> rowsById = new HashMap<>();
+    // Years of every dated book put since the last clear(); queries are narrowed to them,
+    // so a wide year range does not size the per-year totals
+    private int minYear = Integer.MAX_VALUE;
+    private int maxYear = Integer.MIN_VALUE;
+
+    // Code 0 is the null author
+    private List<String> authors = new ArrayList<>();
+    private Map<String, Integer> authorCodesByName = new HashMap<>();
+
+    public ColumnarCatalog() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ColumnarCatalog(ForkJoinPool pool) {
+        this.pool = pool;
+        authors.add(null);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Add the book, or overwrite its row if the id is already there
+    public void put(Book book) {
+        int day = book.getPublishDate() != null ? EpochDays.fromDate(book.getPublishDate()) : NO_DATE;
+        int year = day != NO_DATE ? EpochDays.year(day) : 0;
+        // A year a short cannot hold is far outside any range asked for, and outside the
+        // years SQLite's date functions count; the book is kept, as undated
+        if (year < Short.MIN_VALUE || year > Short.MAX_VALUE) {
+            day = NO_DATE;
+            year = 0;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Integer existing = rowsById.get(book.getId());
+            int row;
+            if (existing != null) {
+                row = existing;
+            } else {
+                row = size++;
+                ensureCapacity(size);
+                rowsById.put(book.getId(), row);
+            }
+            ids[row] = book.getId();
+            days[row] = day;
+            years[row] = (short) year;
+            if (day != NO_DATE) {
+                minYear = Math.min(minYear, year);
+                maxYear = Math.max(maxYear, year);
+            }
+            categories[row] = (byte) (book.getCategories() & Category.allMask());
+            authorCodes[row] = authorCode(book.getAuthor());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAll(Iterable<Book> books) {
+        for (Book book : books) {
+            put(book);
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            Integer row = rowsById.remove(id);
+            if (row == null) {
+                return;
+            }
+            int last = --size;
+            if (row != last) {
+                ids[row] = ids[last];
+                days[row] = days[last];
+                years[row] = years[last];
+                categories[row] = categories[last];
+                authorCodes[row] = authorCodes[last];
+                rowsById.put(ids[row], row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            size = 0;
+            rowsById.clear();
+            authors.clear();
+            authors.add(null);
+            authorCodesByName.clear();
+            minYear = Integer.MAX_VALUE;
+            maxYear = Integer.MIN_VALUE;
+            ids = new int[INITIAL_CAPACITY];
+            days = new int[INITIAL_CAPACITY];
+            years = new short[INITIAL_CAPACITY];
+            categories = new byte[INITIAL_CAPACITY];
+            authorCodes = new int[INITIAL_CAPACITY];
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // An empty catalog scanning on the same pool, to load in the background and then
+    // replaceWith() in one step
+    ColumnarCatalog newEmpty() {
+        return new ColumnarCatalog(pool);
+    }
+
+    // Take over every row of loaded, which must not be used afterwards
+    void replaceWith(ColumnarCatalog loaded) {
+        lock.writeLock().lock();
+        try {
+            ids = loaded.ids;
+            days = loaded.days;
+            years = loaded.years;
+            categories = loaded.categories;
+            authorCodes = loaded.authorCodes;
+            size = loaded.size;
+            rowsById = loaded.rowsById;
+            minYear = loaded.minYear;
+            maxYear = loaded.maxYear;
+            authors = loaded.authors;
+            authorCodesByName = loaded.authorCodesByName;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Same totals as DatabaseHelper.getStatistics. author may be null for any author.
+    public BookStatistics getStatistics(int startYear, int endYear, int categoryMask, String author,
+                                        int authorLimit) {
+        lock.readLock().lock();
+        try {
+            Filter filter = filter(startYear, endYear, categoryMask, author);
+            BookStatistics statistics = new BookStatistics();
+            if (filter == null || size == 0) {
+                return statistics;
+            }
+            Totals totals = pool.invoke(new ScanTask(filter, 0, size));
+            for (int i = 0; i < totals.counts.length; i++) {
+                if (totals.counts[i] > 0) {
+                    statistics.addCount(filter.startYear + i / CATEGORY_COMBINATIONS, i % CATEGORY_COMBINATIONS,
+                            totals.counts[i]);
+                }
+            }
+            addTopAuthors(statistics, totals.authorCounts, authorLimit);
+            return statistics;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Ids of the matching books in (publish date, id) order, as the year-range query returns them
+    public int[] findIds(int startYear, int endYear, int categoryMask, String author) {
+        lock.readLock().lock();
+        try {
+            Filter filter = filter(startYear, endYear, categoryMask, author);
+            if (filter == null || size == 0) {
+                return new int[0];
+            }
+            long[] keys = pool.invoke(new FindTask(filter, 0, size));
+            Arrays.parallelSort(keys);
+            int[] result = new int[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                result[i] = (int) keys[i];
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // null when the years hold no book or the author is not in the catalog, so nothing can match
+    private Filter filter(int startYear, int endYear, int categoryMask, String author) {
+        startYear = Math.max(startYear, minYear);
+        endYear = Math.min(endYear, maxYear);
+        if (startYear > endYear) {
+            return null;
+        }
+        int authorCode = -1;
+        if (author != null) {
+            Integer code = authorCodesByName.get(author);
+            if (code == null) {
+                return null;
+            }
+            authorCode = code;
+        }
+        return new Filter(EpochDays.firstDayOfYear(startYear), EpochDays.lastDayOfYear(endYear),
+                startYear, endYear - startYear + 1, categoryMask, authorCode);
+    }
+
+    private void addTopAuthors(BookStatistics statistics, AuthorCounts authorCounts, int limit) {
+        // {code, count} of every author with a matching book
+        List<int[]> counts = new ArrayList<>(authorCounts.size);
+        for (int slot = 0; slot < authorCounts.codes.length; slot++) {
+            if (authorCounts.codes[slot] != AuthorCounts.EMPTY) {
+                counts.add(new int[]{authorCounts.codes[slot], authorCounts.counts[slot]});
+            }
+        }
+        // Most books first, then by name with the null author first, like ORDER BY in SQLite
+        counts.sort((a, b) -> {
+            if (a[1] != b[1]) {
+                return Integer.compare(b[1], a[1]);
+            }
+            String nameA = authors.get(a[0]);
+            String nameB = authors.get(b[0]);
+            if (nameA == null || nameB == null) {
+                return nameA == null ? (nameB == null ? 0 : -1) : 1;
+            }
+            return nameA.compareTo(nameB);
+        });
+        for (int i = 0; i < counts.size() && i < limit; i++) {
+            statistics.addAuthorCount(authors.get(counts.get(i)[0]), counts.get(i)[1]);
+        }
+    }
+
+    private int authorCode(String author) {
+        if (author == null) {
+            return 0;
+        }
+        Integer code = authorCodesByName.get(author);
+        if (code == null) {
+            code = authors.size();
+            authors.add(author);
+            authorCodesByName.put(author, code);
+        }
+        return code;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newLength);
+        days = Arrays.copyOf(days, newLength);
+        years = Arrays.copyOf(years, newLength);
+        categories = Arrays.copyOf(categories, newLength);
+        authorCodes = Arrays.copyOf(authorCodes, newLength);
+    }
+
+    private static final class Filter {
+        final int firstDay;
+        final int lastDay;
+        final int startYear;
+        final int yearCount;
+        final int categoryMask;
+        // -1 for any author
+        final int authorCode;
+
+        Filter(int firstDay, int lastDay, int startYear, int yearCount, int categoryMask, int authorCode) {
+            this.firstDay = firstDay;
+            this.lastDay = lastDay;
+            this.startYear = startYear;
+            this.yearCount = yearCount;
+            this.categoryMask = categoryMask;
+            this.authorCode = authorCode;
+        }
+    }
+
+    private static final class Totals {
+        // Per (year - startYear, category mask)
+        final int[] counts;
+        // Only the authors this range of rows matched, so a leaf never allocates per author
+        final AuthorCounts authorCounts = new AuthorCounts();
+
+        Totals(int yearCount) {
+            counts = new int[yearCount * CATEGORY_COMBINATIONS];
+        }
+
+        Totals add(Totals other) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += other.counts[i];
+            }
+            authorCounts.addAll(other.authorCounts);
+            return this;
+        }
+    }
+
+    // Book count per author code in an open-addressing table sized by the authors seen
+    private static final class AuthorCounts {
+        static final int EMPTY = -1;
+
+        int[] codes = newCodes(16);
+        int[] counts = new int[16];
+        int size;
+
+        void add(int code, int count) {
+            int slot = slotOf(code);
+            if (codes[slot] == EMPTY) {
+                // Kept at most half full, so probes stay short
+                if ((size + 1) * 2 > codes.length) {
+                    grow();
+                    slot = slotOf(code);
+                }
+                codes[slot] = code;
+                size++;
+            }
+            counts[slot] += count;
+        }
+
+        // Slot holding code, or the empty slot where it goes
+        private int slotOf(int code) {
+            int mask = codes.length - 1;
+            int hash = code * 0x9E3779B9;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (codes[slot] != EMPTY && codes[slot] != code) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        void addAll(AuthorCounts other) {
+            for (int slot = 0; slot < other.codes.length; slot++) {
+                if (other.codes[slot] != EMPTY) {
+                    add(other.codes[slot], other.counts[slot]);
+                }
+            }
+        }
+
+        private void grow() {
+            int[] oldCodes = codes;
+            int[] oldCounts = counts;
+            codes = newCodes(oldCodes.length * 2);
+            counts = new int[oldCodes.length * 2];
+            size = 0;
+            for (int slot = 0; slot < oldCodes.length; slot++) {
+                if (oldCodes[slot] != EMPTY) {
+                    add(oldCodes[slot], oldCounts[slot]);
+                }
+            }
+        }
+
+        private static int[] newCodes(int length) {
+            int[] codes = new int[length];
+            Arrays.fill(codes, EMPTY);
+            return codes;
+        }
+    }
+
+    // Runs under the read lock of the caller, so the arrays do not change underneath it
+    private final class ScanTask extends RecursiveTask<Totals> {
+        private final Filter filter;
+        private final int from;
+        private final int to;
+
+        ScanTask(Filter filter, int from, int to) {
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from > SCAN_CHUNK) {
+                int middle = (from + to) >>> 1;
+                ScanTask left = new ScanTask(filter, from, middle);
+                left.fork();
+                Totals right = new ScanTask(filter, middle, to).compute();
+                return left.join().add(right);
+            }
+
+            Totals totals = new Totals(filter.yearCount);
+            int[] days = ColumnarCatalog.this.days;
+            byte[] categories = ColumnarCatalog.this.categories;
+            int[] authorCodes = ColumnarCatalog.this.authorCodes;
+            short[] years = ColumnarCatalog.this.years;
+            for (int row = from; row < to; row++) {
+                int day = days[row];
+                if (day < filter.firstDay || day > filter.lastDay) {
+                    continue;
+                }
+                int mask = categories[row] & 0xFF;
+                if (filter.categoryMask != 0 && (mask & filter.categoryMask) == 0) {
+                    continue;
+                }
+                int author = authorCodes[row];
+                if (filter.authorCode >= 0 && author != filter.authorCode) {
+                    continue;
+                }
+                totals.counts[(years[row] - filter.startYear) * CATEGORY_COMBINATIONS + mask]++;
+                totals.authorCounts.add(author, 1);
+            }
+            return totals;
+        }
+    }
+
+    // Matching rows as (day << 32 | id) keys, so sorting them gives (publish date, id) order
+    private final class FindTask extends RecursiveTask<long[]> {
+        private final Filter filter;
+        private final int from;
+        private final int to;
+
+        FindTask(Filter filter, int from, int to) {
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > SCAN_CHUNK) {
+                int middle = (from + to) >>> 1;
+                FindTask left = new FindTask(filter, from, middle);
+                left.fork();
+                long[] right = new FindTask(filter, middle, to).compute();
+                long[] leftKeys = left.join();
+                long[] keys = Arrays.copyOf(leftKeys, leftKeys.length + right.length);
+                System.arraycopy(right, 0, keys, leftKeys.length, right.length);
+                return keys;
+            }
+
+            long[] keys = new long[Math.min(to - from, 1024)];
+            int count = 0;
+            for (int row = from; row < to; row++) {
+                int day = days[row];
+                if (day < filter.firstDay || day > filter.lastDay) {
+                    continue;
+                }
+                if (filter.categoryMask != 0 && (categories[row] & filter.categoryMask) == 0) {
+                    continue;
+                }
+                if (filter.authorCode >= 0 && authorCodes[row] != filter.authorCode) {
+                    continue;
+                }
+                if (count == keys.length) {
+                    keys = Arrays.copyOf(keys, Math.min(to - from, keys.length * 2));
+                }
+                keys[count++] = ((long) day << 32) | (ids[row] & 0xFFFFFFFFL);
+            }
+            return count == keys.length ? keys : Arrays.copyOf(keys, count);
+        }
+    }
+}
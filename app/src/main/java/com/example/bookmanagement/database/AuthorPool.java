@@ -0,0 +1,76 @@
+package com.example.bookmanagement.database;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// In-process copy of the authors table: one String per author id, shared by every Book read
+// with that author, so loading a million rows costs one String per distinct author.
+// Names are looked up by id without locking on the read path; ids not seen yet are loaded
+// once through the NameLoader. Only committed rows may be added, since an id from a rolled
+// back insert can later be given to another name.
+public class AuthorPool {
+    public interface NameLoader {
+        // The name stored for the id, or null if there is no such author
+        String loadName(long id);
+    }
+
+    private final NameLoader loader;
+    // Indexed by id; replaced, never resized in place, so readers need no lock
+    private volatile String[] names = new String[256];
+    // Guarded by this
+    private final Map<String, Long> ids = new HashMap<>();
+
+    public AuthorPool(NameLoader loader) {
+        this.loader = loader;
+    }
+
+    // The shared name for an author id
+    public String name(long id) {
+        String[] current = names;
+        if (id >= 0 && id < current.length) {
+            String name = current[(int) id];
+            if (name != null) {
+                return name;
+            }
+        }
+        String loaded = loader.loadName(id);
+        if (loaded == null) {
+            return null;
+        }
+        return put(id, loaded);
+    }
+
+    // The id of an author already in the pool, or -1
+    public synchronized long idOf(String name) {
+        Long id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    // Record a committed author and return the pooled name, which may be an earlier copy
+    public synchronized String put(long id, String name) {
+        if (id < 0 || id > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("author id " + id);
+        }
+        String[] current = names;
+        if (id < current.length && current[(int) id] != null) {
+            return current[(int) id];
+        }
+        if (id >= current.length) {
+            current = Arrays.copyOf(current, (int) Math.max(id + 1, current.length * 2L));
+        }
+        current[(int) id] = name;
+        names = current;
+        ids.put(name, id);
+        return name;
+    }
+
+    public synchronized int size() {
+        return ids.size();
+    }
+
+    public synchronized void clear() {
+        names = new String[256];
+        ids.clear();
+    }
+}
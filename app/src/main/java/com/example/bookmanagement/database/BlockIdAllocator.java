@@ -0,0 +1,51 @@
+package com.example.bookmanagement.database;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Hands out book ids from blocks reserved in one database write, so bulk and concurrent
+// writers know each id before inserting without a round trip per book.
+// Taking an id is a single atomic increment. A thread that finds the block used up
+// reserves the next one itself and swaps it in; if another thread got there first, the
+// extra block is simply skipped. Ids are unique but may leave gaps, as AUTOINCREMENT does.
+public class BlockIdAllocator {
+    public interface BlockReserver {
+        // Reserve count consecutive ids nobody else will use and return the first
+        long reserve(int count);
+    }
+
+    private static final class Block {
+        final AtomicLong next;
+        final long end;
+
+        Block(long first, int count) {
+            next = new AtomicLong(first);
+            end = first + count;
+        }
+    }
+
+    private final BlockReserver reserver;
+    private final int blockSize;
+    // Starts used up, so the first id reserves the first block
+    private final AtomicReference<Block> current = new AtomicReference<>(new Block(0, 0));
+
+    public BlockIdAllocator(BlockReserver reserver, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        this.reserver = reserver;
+        this.blockSize = blockSize;
+    }
+
+    public long nextId() {
+        while (true) {
+            Block block = current.get();
+            long id = block.next.getAndIncrement();
+            if (id < block.end) {
+                return id;
+            }
+            Block reserved = new Block(reserver.reserve(blockSize), blockSize);
+            current.compareAndSet(block, reserved);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.bookmanagement.database;
+
+import com.example.bookmanagement.model.Book;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Least-recently-used cache of books by id, kept in step with the table by DatabaseHelper.
+// Entries are copied on the way in and out, so callers editing a Book never change the cache.
+// Reads and writes come from different threads, so every method is synchronized.
+public class BookCache {
+    public static final int DEFAULT_MAX_SIZE = 500;
+
+    private final int maxSize;
+    private final LinkedHashMap<Integer, Book> books;
+    // Bumped by every write; reads that started before a write must not cache what they read
+    private long writeStamp;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    public BookCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        // Access order: every get moves the entry to the end, so the eldest is the least recently used
+        this.books = new LinkedHashMap<Integer, Book>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Book> eldest) {
+                if (size() > BookCache.this.maxSize) {
+                    evictionCount++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // Copy of the cached book, or null on a miss
+    public synchronized Book get(int id) {
+        Book book = books.get(id);
+        if (book == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return new Book(book);
+    }
+
+    // Take before reading from the table and pass to putIfUnchanged with the rows read
+    public synchronized long getWriteStamp() {
+        return writeStamp;
+    }
+
+    // Cache books read from the table, unless a write happened since the read started
+    public synchronized void putIfUnchanged(List<Book> readBooks, long stamp) {
+        if (stamp != writeStamp) {
+            return;
+        }
+        for (Book book : readBooks) {
+            books.put(book.getId(), new Book(book));
+        }
+    }
+
+    // A book was added or updated
+    public synchronized void put(Book book) {
+        writeStamp++;
+        books.put(book.getId(), new Book(book));
+    }
+
+    // A book was deleted
+    public synchronized void remove(int id) {
+        writeStamp++;
+        books.remove(id);
+    }
+
+    public synchronized void clear() {
+        writeStamp++;
+        books.clear();
+    }
+
+    public synchronized int size() {
+        return books.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.bookmanagement.database;
+
+// One committed change to the books table. version counts every change published since
+// the process started, so a screen that remembers the last version it showed can tell
+// whether anything happened while it was in the background.
+public final class BookChangeEvent {
+    public enum Type {
+        INSERTED,
+        UPDATED,
+        DELETED,
+        // Many rows at once, e.g. a chunk of an import; bookId is 0
+        BULK
+    }
+
+    private final Type type;
+    private final int bookId;
+    private final long version;
+
+    public BookChangeEvent(Type type, int bookId, long version) {
+        this.type = type;
+        this.bookId = bookId;
+        this.version = version;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getBookId() {
+        return bookId;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + bookId + " @" + version;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.bookmanagement.database;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Publishes BookChangeEvents after each commit. Listeners are called on the writing
+// thread, in commit order, and must hand the event off quickly (e.g. post it to the
+// main thread) because the writer is waiting.
+public class BookChangeNotifier {
+    public interface Listener {
+        void onBookChanged(BookChangeEvent event);
+    }
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile long version;
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // Version of the newest published change; 0 if nothing changed yet
+    public long getVersion() {
+        return version;
+    }
+
+    // Called by the data source once the change is committed
+    public synchronized void publish(BookChangeEvent.Type type, int bookId) {
+        BookChangeEvent event = new BookChangeEvent(type, bookId, version + 1);
+        version = event.getVersion();
+        for (Listener listener : listeners) {
+            listener.onBookChanged(event);
+        }
+    }
+}
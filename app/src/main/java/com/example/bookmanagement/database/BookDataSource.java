@@ -0,0 +1,52 @@
+package com.example.bookmanagement.database;
+
+import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.model.BookStatistics;
+
+import java.util.List;
+
+// Blocking book storage operations. DatabaseHelper is the SQLite implementation;
+// callers on the main thread should go through BookRepository instead.
+public interface BookDataSource {
+    interface ImportProgressListener {
+        // Called after each committed chunk with the total number of rows written so far
+        void onProgress(int imported);
+    }
+
+    long addBook(Book book);
+
+    int addBooks(Iterable<Book> books, ImportProgressListener progressListener);
+
+    Book getBook(int id);
+
+    List<Book> getAllBooks();
+
+    List<Book> getBooksAfterId(int afterId, int limit);
+
+    int updateBook(Book book);
+
+    void deleteBook(int id);
+
+    // categoryMask is a combination of Category.mask() values; 0 matches every book
+    List<Book> getBooksByYearRangeAndCategories(int startYear, int endYear, int categoryMask);
+
+    // Same filter, backed by an open cursor instead of a materialized list; the caller closes it
+    CursorBookList openBooksByYearRangeAndCategories(int startYear, int endYear, int categoryMask);
+
+    // Keyset page of the same filter in (publish date, id) order; after is null for the first page
+    List<Book> getBooksByYearRangeAndCategories(int startYear, int endYear, int categoryMask, Book after, int limit);
+
+    // Books matching a composed filter, in the query's order
+    List<Book> queryBooks(BookQuery query);
+
+    // Same, backed by an open cursor instead of a materialized list; the caller closes it
+    CursorBookList openBooks(BookQuery query);
+
+    // Full-text prefix search over title and author, best matches first
+    List<Book> searchBooks(String query, int limit);
+
+    BookStatistics getStatistics(int startYear, int endYear, int categoryMask, int authorLimit);
+
+    // Committed writes are published here
+    BookChangeNotifier getChangeNotifier();
+}
@@ -0,0 +1,301 @@
+package com.example.bookmanagement.database;
+
+import com.example.bookmanagement.model.Book;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Keyset-paged view over a books query.
+// Each page is fetched starting after the last book of the previous page (for example
+// "WHERE id > ?"), and only the pages around the last requested position are kept in
+// memory. Evicted pages are re-read on demand from the book they started after, so
+// scrolling back never needs an OFFSET scan.
+// Loading is asynchronous: the loader hands each page back through PageCallback in a
+// later message on the thread that owns this source (never from inside loadPage), and
+// the Listener is told which rows changed. refresh() re-reads the pages held in memory
+// after the underlying rows were edited, replace() swaps in a single edited book, and
+// snapshot() gives a stable copy to diff against.
+public class BookPagingSource {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int DEFAULT_PREFETCH_DISTANCE = 15;
+    // Pages kept on each side of the page currently being displayed
+    private static final int RETAINED_PAGES = 2;
+
+    public interface PageLoader {
+        // after is null for the first page
+        void loadPage(Book after, int limit, PageCallback callback);
+    }
+
+    public interface PageCallback {
+        void onPageLoaded(List<Book> page);
+    }
+
+    public interface Listener {
+        void onRowsAppended(int start, int count);
+
+        void onRowsReloaded(int start, int count);
+
+        // Rows may have been added, changed or removed anywhere in the loaded range
+        void onRefreshed();
+    }
+
+    private final PageLoader loader;
+    private final int pageSize;
+    private final int prefetchDistance;
+    private Listener listener;
+
+    // Loaded pages, null once a page has been evicted
+    private final List<List<Book>> pages = new ArrayList<>();
+    // Book the page at the same index was loaded after; kept after eviction for reloading
+    private final List<Book> pageStartKeys = new ArrayList<>();
+    private final Set<Integer> reloadingPages = new HashSet<>();
+    // Range of page indices that may currently hold loaded rows
+    private int windowFrom;
+    private int windowTo = -1;
+    private int size;
+    private Book lastKey;
+    private boolean endReached;
+    private boolean appending;
+    // Bumped by refresh(); pages requested before it are dropped when they arrive
+    private int generation;
+
+    public BookPagingSource(PageLoader loader) {
+        this(loader, DEFAULT_PAGE_SIZE, DEFAULT_PREFETCH_DISTANCE);
+    }
+
+    public BookPagingSource(PageLoader loader, int pageSize, int prefetchDistance) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("pageSize must be positive");
+        }
+        this.loader = loader;
+        this.pageSize = pageSize;
+        this.prefetchDistance = prefetchDistance;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    // Number of rows loaded so far (grows as more pages are appended)
+    public int size() {
+        return size;
+    }
+
+    public boolean isEndReached() {
+        return endReached;
+    }
+
+    // Whether the next page should be fetched now that the given position is visible
+    public boolean shouldLoadMore(int lastVisiblePosition) {
+        return !endReached && !appending && lastVisiblePosition >= size - 1 - prefetchDistance;
+    }
+
+    // Request the page after the last loaded book; rows are reported through Listener.onRowsAppended
+    public void loadNextPage() {
+        if (endReached || appending) {
+            return;
+        }
+
+        appending = true;
+        int requestGeneration = generation;
+        loader.loadPage(lastKey, pageSize, page -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            appending = false;
+            if (page.size() < pageSize) {
+                endReached = true;
+            }
+            if (page.isEmpty()) {
+                return;
+            }
+
+            int start = size;
+            pages.add(page);
+            pageStartKeys.add(lastKey);
+            lastKey = page.get(page.size() - 1);
+            size += page.size();
+            evictAround(pages.size() - 1);
+            if (listener != null) {
+                listener.onRowsAppended(start, page.size());
+            }
+        });
+    }
+
+    // Book at the given position, or null while its evicted page is being re-read
+    public Book get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size);
+        }
+
+        int pageIndex = position / pageSize;
+        List<Book> page = pages.get(pageIndex);
+        if (page == null) {
+            reloadPage(pageIndex);
+            return null;
+        }
+        evictAround(pageIndex);
+
+        int offset = position % pageSize;
+        // A re-read page that lost rows since it was first read leaves a gap at its end
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    private void reloadPage(int pageIndex) {
+        if (!reloadingPages.add(pageIndex)) {
+            return;
+        }
+        int requestGeneration = generation;
+        loader.loadPage(pageStartKeys.get(pageIndex), pageSize, page -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            reloadingPages.remove(pageIndex);
+            pages.set(pageIndex, fitBeforeNextPage(pageIndex, page));
+            evictAround(pageIndex);
+            if (listener != null) {
+                int start = pageIndex * pageSize;
+                listener.onRowsReloaded(start, Math.min(pageSize, size - start));
+            }
+        });
+    }
+
+    // Re-read the pages in memory, e.g. after a book was added, edited or deleted.
+    // Each page is read after the last row of the page re-read before it, so rows shift
+    // between pages instead of showing up twice; pages past the re-read ones are dropped
+    // and loaded again while scrolling. Listener.onRefreshed is called once all are back.
+    public void refresh() {
+        generation++;
+        appending = false;
+        reloadingPages.clear();
+        if (windowFrom > windowTo) {
+            // Nothing loaded yet, e.g. the table was empty: start over from the first page
+            pages.clear();
+            pageStartKeys.clear();
+            windowFrom = 0;
+            windowTo = -1;
+            size = 0;
+            lastKey = null;
+            endReached = false;
+            loadNextPage();
+            return;
+        }
+        refreshPage(windowFrom, windowTo, generation);
+    }
+
+    private void refreshPage(int pageIndex, int lastIndex, int requestGeneration) {
+        loader.loadPage(pageStartKeys.get(pageIndex), pageSize, page -> {
+            if (requestGeneration != generation) {
+                return;
+            }
+            if (page.size() == pageSize && pageIndex < lastIndex) {
+                pages.set(pageIndex, page);
+                pageStartKeys.set(pageIndex + 1, page.get(page.size() - 1));
+                refreshPage(pageIndex + 1, lastIndex, requestGeneration);
+                return;
+            }
+
+            // Last page re-read: everything after it is dropped, and so is the page if it is empty
+            lastKey = page.isEmpty() ? pageStartKeys.get(pageIndex) : page.get(page.size() - 1);
+            int keptPages = page.isEmpty() ? pageIndex : pageIndex + 1;
+            pages.subList(keptPages, pages.size()).clear();
+            pageStartKeys.subList(keptPages, pageStartKeys.size()).clear();
+            if (!page.isEmpty()) {
+                pages.set(pageIndex, page);
+            }
+            size = pageIndex * pageSize + page.size();
+            endReached = page.size() < pageSize;
+            windowTo = Math.min(windowTo, pages.size() - 1);
+            windowFrom = Math.max(0, Math.min(windowFrom, windowTo));
+            if (listener != null) {
+                listener.onRefreshed();
+            }
+            // A full last page may now be followed by new books
+            loadNextPage();
+        });
+    }
+
+    // A page re-read while the next page is in memory stops where that page starts, so no
+    // row is shown twice; otherwise the next page is chained to start after this one
+    private List<Book> fitBeforeNextPage(int pageIndex, List<Book> page) {
+        if (pageIndex + 1 >= pages.size() || page.isEmpty()) {
+            return page;
+        }
+        List<Book> next = pages.get(pageIndex + 1);
+        if (next == null) {
+            pageStartKeys.set(pageIndex + 1, page.get(page.size() - 1));
+            return page;
+        }
+        Set<Integer> nextIds = new HashSet<>();
+        for (Book book : next) {
+            nextIds.add(book.getId());
+        }
+        for (int i = 0; i < page.size(); i++) {
+            if (nextIds.contains(page.get(i).getId())) {
+                return new ArrayList<>(page.subList(0, i));
+            }
+        }
+        return page;
+    }
+
+    // Swap in a newer copy of a book that is in a loaded page, e.g. after it was edited.
+    // Returns its position, or -1 if it is not loaded (an evicted page is re-read anyway).
+    public int replace(Book book) {
+        for (int i = windowFrom; i <= windowTo; i++) {
+            List<Book> page = pages.get(i);
+            if (page == null) {
+                continue;
+            }
+            for (int offset = 0; offset < page.size(); offset++) {
+                if (page.get(offset).getId() != book.getId()) {
+                    continue;
+                }
+                // Pages are shared with earlier snapshots, so the page is copied rather than changed
+                List<Book> copy = new ArrayList<>(page);
+                copy.set(offset, book);
+                pages.set(i, copy);
+                int position = i * pageSize + offset;
+                if (listener != null) {
+                    listener.onRowsReloaded(position, 1);
+                }
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    // Immutable copy of the rows as they are now: null for rows whose page is not in memory.
+    // Only the page references are copied, so this is cheap even for long lists.
+    public List<Book> snapshot() {
+        List<List<Book>> pagesCopy = new ArrayList<>(pages);
+        int sizeCopy = size;
+        return new AbstractList<Book>() {
+            @Override
+            public Book get(int position) {
+                List<Book> page = pagesCopy.get(position / pageSize);
+                int offset = position % pageSize;
+                return page != null && offset < page.size() ? page.get(offset) : null;
+            }
+
+            @Override
+            public int size() {
+                return sizeCopy;
+            }
+        };
+    }
+
+    private void evictAround(int pageIndex) {
+        int from = Math.max(0, pageIndex - RETAINED_PAGES);
+        int to = Math.min(pages.size() - 1, pageIndex + RETAINED_PAGES);
+        for (int i = windowFrom; i <= windowTo; i++) {
+            if (i < from || i > to) {
+                pages.set(i, null);
+            }
+        }
+        windowFrom = from;
+        windowTo = to;
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.bookmanagement.database;
+
+import com.example.bookmanagement.model.Book;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A filter over books: publish date range, categories, author, title prefix, order, limit
+// and offset or keyset. Immutable; build one with BookQuery.builder().
+// Every value is bound as a parameter, so the SQL text depends only on which clauses are
+// present (the shape). Queries of the same shape share one SQL string and so one compiled
+// statement in SQLite's per-connection cache, whatever dates or names they ask for.
+public final class BookQuery {
+    // Each order ends with id, so rows are never tied and keyset pages do not skip or repeat
+    public enum Order {
+        // Storage order; no keyset paging
+        NONE,
+        ID,
+        PUBLISH_DATE,
+        TITLE
+    }
+
+    // Shape bits; the order takes the bits above them
+    private static final int HAS_DATE_RANGE = 1;
+    private static final int HAS_CATEGORIES = 1 << 1;
+    private static final int HAS_AUTHOR = 1 << 2;
+    private static final int HAS_TITLE_PREFIX = 1 << 3;
+    private static final int HAS_AFTER = 1 << 4;
+    private static final int HAS_LIMIT = 1 << 5;
+    private static final int ORDER_SHIFT = 6;
+
+    private final Integer firstDay;
+    private final Integer lastDay;
+    private final int categoryMask;
+    private final String author;
+    private final String titlePrefix;
+    private final Order order;
+    private final Book after;
+    private final int limit;
+    private final int offset;
+
+    private BookQuery(Builder builder) {
+        firstDay = builder.firstDay;
+        lastDay = builder.lastDay;
+        categoryMask = builder.categoryMask;
+        author = builder.author;
+        titlePrefix = builder.titlePrefix;
+        order = builder.order;
+        after = builder.after;
+        limit = builder.limit;
+        offset = builder.offset;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // The same filter, starting after the given book; for the next keyset page
+    public BookQuery after(Book book) {
+        return toBuilder().after(book).build();
+    }
+
+    public Builder toBuilder() {
+        Builder builder = new Builder();
+        builder.firstDay = firstDay;
+        builder.lastDay = lastDay;
+        builder.categoryMask = categoryMask;
+        builder.author = author;
+        builder.titlePrefix = titlePrefix;
+        builder.order = order;
+        builder.after = after;
+        builder.limit = limit;
+        builder.offset = offset;
+        return builder;
+    }
+
+    public Order getOrder() {
+        return order;
+    }
+
+    // -1 when unlimited
+    public int getLimit() {
+        return limit;
+    }
+
+    // Which clauses the SQL has; equal shapes give equal SQL
+    public int shape() {
+        int shape = order.ordinal() << ORDER_SHIFT;
+        if (hasDateRange()) {
+            shape |= HAS_DATE_RANGE;
+        }
+        if (categoryMask != 0) {
+            shape |= HAS_CATEGORIES;
+        }
+        if (author != null) {
+            shape |= HAS_AUTHOR;
+        }
+        if (titlePrefix != null) {
+            shape |= HAS_TITLE_PREFIX;
+        }
+        if (after != null) {
+            shape |= HAS_AFTER;
+        }
+        if (limit >= 0 || offset > 0) {
+            shape |= HAS_LIMIT;
+        }
+        return shape;
+    }
+
+    // Canonical SQL for this query's shape: clauses always in the same order, every value a '?'
+    public String toSql() {
+        int shape = shape();
+        StringBuilder sql = new StringBuilder("SELECT * FROM books");
+        String separator = " WHERE ";
+        if ((shape & HAS_DATE_RANGE) != 0) {
+            sql.append(separator).append("publish_date BETWEEN ? AND ?");
+            separator = " AND ";
+        }
+        // One bitwise test covers any combination of selected categories
+        if ((shape & HAS_CATEGORIES) != 0) {
+            sql.append(separator).append("(categories & ?) != 0");
+            separator = " AND ";
+        }
+        if ((shape & HAS_AUTHOR) != 0) {
+            sql.append(separator).append("author_id = (SELECT id FROM authors WHERE name = ?)");
+            separator = " AND ";
+        }
+        if ((shape & HAS_TITLE_PREFIX) != 0) {
+            sql.append(separator).append("title LIKE ? ESCAPE '\\'");
+            separator = " AND ";
+        }
+        if ((shape & HAS_AFTER) != 0) {
+            sql.append(separator);
+            switch (order) {
+                case ID:
+                    sql.append("id > ?");
+                    break;
+                case PUBLISH_DATE:
+                    // The date range already starts at the last book's date
+                    sql.append("(publish_date > ? OR id > ?)");
+                    break;
+                case TITLE:
+                    sql.append("(title > ? OR (title = ? AND id > ?))");
+                    break;
+                default:
+                    throw new IllegalStateException("no keyset for order " + order);
+            }
+        }
+        switch (order) {
+            case ID:
+                sql.append(" ORDER BY id");
+                break;
+            case PUBLISH_DATE:
+                sql.append(" ORDER BY publish_date, id");
+                break;
+            case TITLE:
+                sql.append(" ORDER BY title, id");
+                break;
+            default:
+                break;
+        }
+        if ((shape & HAS_LIMIT) != 0) {
+            sql.append(" LIMIT ? OFFSET ?");
+        }
+        return sql.toString();
+    }
+
+    // Values for the '?' of toSql(), in the same order
+    public String[] bindArgs() {
+        List<String> args = new ArrayList<>();
+        if (hasDateRange()) {
+            int first = firstDay != null ? firstDay : Integer.MIN_VALUE;
+            if (after != null && order == Order.PUBLISH_DATE) {
+                // Start the index range at the last book's date instead of re-reading earlier rows
+                first = Math.max(first, EpochDays.fromDate(after.getPublishDate()));
+            }
+            args.add(String.valueOf(first));
+            args.add(String.valueOf(lastDay != null ? lastDay : Integer.MAX_VALUE));
+        }
+        if (categoryMask != 0) {
+            args.add(String.valueOf(categoryMask));
+        }
+        if (author != null) {
+            args.add(author);
+        }
+        if (titlePrefix != null) {
+            args.add(escapeLike(titlePrefix) + "%");
+        }
+        if (after != null) {
+            switch (order) {
+                case PUBLISH_DATE:
+                    args.add(String.valueOf(EpochDays.fromDate(after.getPublishDate())));
+                    break;
+                case TITLE:
+                    args.add(after.getTitle());
+                    args.add(after.getTitle());
+                    break;
+                default:
+                    break;
+            }
+            args.add(String.valueOf(after.getId()));
+        }
+        if (limit >= 0 || offset > 0) {
+            args.add(String.valueOf(limit));
+            args.add(String.valueOf(offset));
+        }
+        return args.toArray(new String[0]);
+    }
+
+    // Keyset paging by date needs the date clause even without a range, to start at the last date
+    private boolean hasDateRange() {
+        return firstDay != null || lastDay != null || (after != null && order == Order.PUBLISH_DATE);
+    }
+
+    private static String escapeLike(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == '\\') {
+                escaped.append('\\');
+            }
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    public static final class Builder {
+        private Integer firstDay;
+        private Integer lastDay;
+        private int categoryMask;
+        private String author;
+        private String titlePrefix;
+        private Order order = Order.NONE;
+        private Book after;
+        private int limit = -1;
+        private int offset;
+
+        private Builder() {
+        }
+
+        // Books published from the start of startYear to the end of endYear; undated books never match
+        public Builder publishedBetween(int startYear, int endYear) {
+            firstDay = EpochDays.firstDayOfYear(startYear);
+            lastDay = EpochDays.lastDayOfYear(endYear);
+            return this;
+        }
+
+        // Books in any of the categories; 0 matches every book
+        public Builder categories(int categoryMask) {
+            this.categoryMask = categoryMask;
+            return this;
+        }
+
+        // Exact author name; null matches every book
+        public Builder author(String author) {
+            this.author = author;
+            return this;
+        }
+
+        // Titles starting with the prefix, ignoring ASCII case as LIKE does; null or empty matches every book
+        public Builder titlePrefix(String titlePrefix) {
+            this.titlePrefix = titlePrefix == null || titlePrefix.isEmpty() ? null : titlePrefix;
+            return this;
+        }
+
+        public Builder orderBy(Order order) {
+            if (order == null) {
+                throw new IllegalArgumentException("order must not be null");
+            }
+            this.order = order;
+            return this;
+        }
+
+        // Keyset paging: rows after this book in the query's order; null for the first page
+        public Builder after(Book after) {
+            this.after = after;
+            return this;
+        }
+
+        // -1 for no limit
+        public Builder limit(int limit) {
+            this.limit = limit < 0 ? -1 : limit;
+            return this;
+        }
+
+        // Rows to skip; keyset paging with after() does not have to read them
+        public Builder offset(int offset) {
+            if (offset < 0) {
+                throw new IllegalArgumentException("offset must not be negative");
+            }
+            this.offset = offset;
+            return this;
+        }
+
+        public BookQuery build() {
+            if (after != null && order == Order.NONE) {
+                throw new IllegalStateException("keyset paging needs an order");
+            }
+            // Undated books are never in a date range, so no page is read after one
+            if (after != null && order == Order.PUBLISH_DATE && after.getPublishDate() == null) {
+                throw new IllegalArgumentException("keyset paging by date needs a book with a date");
+            }
+            // NULL compares as neither greater nor equal, so there is no next page after it
+            if (after != null && order == Order.TITLE && after.getTitle() == null) {
+                throw new IllegalArgumentException("keyset paging by title needs a book with a title");
+            }
+            return new BookQuery(this);
+        }
+    }
+}
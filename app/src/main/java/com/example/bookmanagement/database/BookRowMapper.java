@@ -0,0 +1,76 @@
+package com.example.bookmanagement.database;
+
+import android.database.Cursor;
+
+import com.example.bookmanagement.model.Book;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+// Turns rows of a books cursor into Book objects.
+// Column indices are looked up once, when the mapper is created for a cursor, instead of
+// by name on every row, and dates are decoded from epoch days with plain arithmetic.
+// Rows of the books table carry an author_id, resolved through the AuthorPool so every book
+// by one author shares its name; rows with an author text column are read as they are.
+public class BookRowMapper {
+    private final int idColumn;
+    private final int titleColumn;
+    private final int authorColumn;
+    private final int authorIdColumn;
+    private final AuthorPool authors;
+    private final int publishDateColumn;
+    private final int categoriesColumn;
+    private final TimeZone zone = TimeZone.getDefault();
+
+    public BookRowMapper(Cursor cursor) {
+        this(cursor, null);
+    }
+
+    public BookRowMapper(Cursor cursor, AuthorPool authors) {
+        this.authors = authors;
+        idColumn = cursor.getColumnIndexOrThrow("id");
+        titleColumn = cursor.getColumnIndexOrThrow("title");
+        if (authors != null) {
+            authorIdColumn = cursor.getColumnIndexOrThrow("author_id");
+            authorColumn = -1;
+        } else {
+            authorIdColumn = -1;
+            authorColumn = cursor.getColumnIndexOrThrow("author");
+        }
+        publishDateColumn = cursor.getColumnIndexOrThrow("publish_date");
+        categoriesColumn = cursor.getColumnIndexOrThrow("categories");
+    }
+
+    public Book map(Cursor cursor) {
+        return map(cursor, new Book());
+    }
+
+    // Fill an existing Book (and its Date) from the current row. For callers that stream
+    // rows and drop each one before reading the next, so no Book is allocated per row.
+    public Book map(Cursor cursor, Book book) {
+        book.setId(cursor.getInt(idColumn));
+        book.setTitle(cursor.getString(titleColumn));
+        if (authors != null) {
+            book.setAuthor(cursor.isNull(authorIdColumn) ? null : authors.name(cursor.getLong(authorIdColumn)));
+        } else {
+            book.setAuthor(cursor.getString(authorColumn));
+        }
+
+        // NULL means the date is unknown, e.g. a text date the version 2 upgrade could not read;
+        // it stays null rather than becoming a date that would be saved back on the next edit
+        if (cursor.isNull(publishDateColumn)) {
+            book.setPublishDate(null);
+        } else {
+            long millis = EpochDays.toMillis(cursor.getLong(publishDateColumn), zone);
+            Date publishDate = book.getPublishDate();
+            if (publishDate == null) {
+                book.setPublishDate(new Date(millis));
+            } else {
+                publishDate.setTime(millis);
+            }
+        }
+
+        book.setCategories(cursor.getInt(categoriesColumn));
+        return book;
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.bookmanagement.database;
+
+import android.database.Cursor;
+
+import com.example.bookmanagement.model.Book;
+
+import java.io.Closeable;
+import java.util.AbstractList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+// Read-only list over an open cursor. Rows become Books a block at a time, when get() first
+// asks for one of them, and only the last few blocks are kept, so a 200k-row result costs
+// the cursor's window plus a few hundred Books instead of 200k of them.
+// Reading a block can refill the cursor window from the database, so a list shown on the
+// main thread should be given a background executor with decodeOn(): get() then returns
+// null for a row whose block is not decoded yet, like BookPagingSource does for a page
+// being read, and the listener is told once the rows are there. Without one, get() decodes
+// on the calling thread. The owner must close() it, e.g. when the screen showing it goes away.
+public class CursorBookList extends AbstractList<Book> implements RandomAccess, Closeable {
+    public interface Listener {
+        void onRowsDecoded(int start, int count);
+    }
+
+    // Rows decoded together; several screens of rows
+    private static final int BLOCK_SIZE = 64;
+    // Blocks kept, least recently read dropped first
+    private static final int RETAINED_BLOCKS = 4;
+
+    // The cursor and mapper are used only while holding the cursor's lock
+    private final Cursor cursor;
+    private final BookRowMapper mapper;
+    private final int size;
+    // Guarded by this
+    private final Map<Integer, Book[]> blocks = new LinkedHashMap<Integer, Book[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Book[]> eldest) {
+            return size() > RETAINED_BLOCKS;
+        }
+    };
+    private final Set<Integer> decodingBlocks = new HashSet<>();
+    private Executor decodeExecutor;
+    private Executor callbackExecutor;
+    private Listener listener;
+    private boolean closed;
+
+    // Call on a background thread: counting and decoding the first rows fill the cursor window
+    public CursorBookList(Cursor cursor, AuthorPool authors) {
+        this.cursor = cursor;
+        this.mapper = new BookRowMapper(cursor, authors);
+        this.size = cursor.getCount();
+        if (size > 0) {
+            blocks.put(0, decode(0));
+        }
+    }
+
+    // Decode blocks on decodeExecutor from now on; the listener is called on callbackExecutor
+    public synchronized void decodeOn(Executor decodeExecutor, Executor callbackExecutor, Listener listener) {
+        this.decodeExecutor = decodeExecutor;
+        this.callbackExecutor = callbackExecutor;
+        this.listener = listener;
+    }
+
+    // Null while the row's block is being decoded in the background
+    @Override
+    public Book get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("position " + position + ", size " + size);
+        }
+        int index = position / BLOCK_SIZE;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("CursorBookList is closed");
+            }
+            Book[] block = blocks.get(index);
+            if (block != null) {
+                return block[position % BLOCK_SIZE];
+            }
+            if (decodeExecutor != null) {
+                if (decodingBlocks.add(index)) {
+                    decodeExecutor.execute(() -> decodeInBackground(index));
+                }
+                return null;
+            }
+        }
+
+        Book[] block = decode(index);
+        synchronized (this) {
+            if (block == null || closed) {
+                throw new IllegalStateException("CursorBookList is closed");
+            }
+            blocks.put(index, block);
+        }
+        return block[position % BLOCK_SIZE];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    // With a decode executor the cursor is closed there, after any block it is decoding
+    @Override
+    public void close() {
+        Executor executor;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            blocks.clear();
+            executor = decodeExecutor;
+        }
+        if (executor != null) {
+            executor.execute(this::closeCursor);
+        } else {
+            closeCursor();
+        }
+    }
+
+    private void decodeInBackground(int index) {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+        }
+        Book[] block = decode(index);
+        Listener listener;
+        Executor callbackExecutor;
+        synchronized (this) {
+            decodingBlocks.remove(index);
+            if (closed || block == null) {
+                return;
+            }
+            blocks.put(index, block);
+            listener = this.listener;
+            callbackExecutor = this.callbackExecutor;
+        }
+        int start = index * BLOCK_SIZE;
+        int count = block.length;
+        callbackExecutor.execute(() -> {
+            if (!isClosed()) {
+                listener.onRowsDecoded(start, count);
+            }
+        });
+    }
+
+    // Null if the cursor was closed meanwhile
+    private Book[] decode(int index) {
+        int start = index * BLOCK_SIZE;
+        Book[] block = new Book[Math.min(BLOCK_SIZE, size - start)];
+        synchronized (cursor) {
+            if (cursor.isClosed()) {
+                return null;
+            }
+            cursor.moveToPosition(start);
+            for (int i = 0; i < block.length; i++) {
+                block[i] = mapper.map(cursor);
+                cursor.moveToNext();
+            }
+        }
+        return block;
+    }
+
+    private void closeCursor() {
+        synchronized (cursor) {
+            cursor.close();
+        }
+    }
+}
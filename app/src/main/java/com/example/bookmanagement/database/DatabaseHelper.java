@@ -1,227 +1,1016 @@
 package com.example.bookmanagement.database;
 
-import android.annotation.SuppressLint;
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
 
 import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.model.BookStatistics;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
-public class DatabaseHelper extends SQLiteOpenHelper {
+// Safe to share between threads. Reads run concurrently on WAL reader connections; single
+// edits go through a GroupCommitWriter and bulk imports hold the same writeLock, so there is
+// one writer at a time. Dates are stored as epoch days, so no formatter is shared, and the
+// database stays open for the life of the process instead of being closed per call.
+public class DatabaseHelper extends SQLiteOpenHelper implements BookDataSource {
+    private static final String TAG = "DatabaseHelper";
     private static final String DATABASE_NAME = "book_management.db";
-    private static final int DATABASE_VERSION = 1;
+    // 1: publish_date as yyyy-MM-dd TEXT
+    // 2: publish_date as INTEGER epoch days, indexed together with the category columns
+    // 3: is_science/is_novel/is_children packed into one categories bitmask
+    // 4: books_fts full-text index over title and author, kept in sync by triggers
+    // 5: book_stats counts per publish year and categories, kept in sync by triggers
+    // 6: author names moved to the authors table, books reference them by author_id
+    private static final int DATABASE_VERSION = 6;
 
     // Table name
     private static final String TABLE_BOOKS = "books";
 
+    // Covers the statistics filter: range scan on the date, category bits checked inside the index
+    private static final String INDEX_BOOKS_PUBLISH_DATE = "idx_books_publish_date_categories";
+
+    // Each distinct author name once; books refer to it by id
+    private static final String TABLE_AUTHORS = "authors";
+    private static final String COLUMN_NAME = "name";
+    private static final String INDEX_BOOKS_AUTHOR = "idx_books_author";
+
+    // Full-text index over title and author; docid is the book id
+    private static final String TABLE_BOOKS_FTS = "books_fts";
+
+    // Books per (publish year, categories bitmask); books without a date are not counted
+    private static final String TABLE_BOOK_STATS = "book_stats";
+    private static final String COLUMN_YEAR = "year";
+    private static final String COLUMN_BOOK_COUNT = "book_count";
+
     // Column names
     private static final String COLUMN_ID = "id";
     private static final String COLUMN_TITLE = "title";
+    // Author name column of books_fts; the books table has author_id instead
     private static final String COLUMN_AUTHOR = "author";
+    private static final String COLUMN_AUTHOR_ID = "author_id";
     private static final String COLUMN_PUBLISH_DATE = "publish_date";
-    private static final String COLUMN_IS_SCIENCE = "is_science";
-    private static final String COLUMN_IS_NOVEL = "is_novel";
-    private static final String COLUMN_IS_CHILDREN = "is_children";
+    // Bitmask of Category.mask() values
+    private static final String COLUMN_CATEGORIES = "categories";
+
+    // Calendar year of an epoch-day publish_date
+    private static final String YEAR_OF_PUBLISH_DATE = yearOf(COLUMN_PUBLISH_DATE);
+
+    // Rows written per transaction by addBooks
+    private static final int IMPORT_CHUNK_SIZE = 1000;
+
+    // Title matches read to rank a search; a broad prefix can match most of the table
+    private static final int SEARCH_CANDIDATES = 500;
+
+    // Compiled statements SQLite keeps per connection (its default is 25), and the BookQuery
+    // shapes kept below that, so every cached shape also stays compiled next to the fixed queries
+    private static final int SQL_CACHE_SIZE = 64;
+    private static final int QUERY_SHAPE_CACHE_SIZE = 32;
+
+    private static DatabaseHelper instance;
+
+    // Compiled once and reused for the hot write paths; guarded by writeLock
+    private final Object writeLock = new Object();
+    // Single edits from any thread are queued here and committed together under writeLock
+    private final GroupCommitWriter writer = new GroupCommitWriter(writeLock, new GroupCommitWriter.Transaction() {
+        private boolean successful;
+
+        @Override
+        public void begin() {
+            successful = false;
+            getWritableDatabase().beginTransactionNonExclusive();
+        }
+
+        @Override
+        public void markSuccessful() {
+            getWritableDatabase().setTransactionSuccessful();
+            successful = true;
+        }
 
-    private SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.getDefault());
+        @Override
+        public void end() {
+            endTransaction(getWritableDatabase(), successful);
+        }
+    });
+    private SQLiteStatement insertStatement;
+    private SQLiteStatement insertWithIdStatement;
+    private SQLiteStatement updateStatement;
+    private SQLiteStatement deleteStatement;
+    private SQLiteStatement insertAuthorStatement;
+    private SQLiteStatement authorIdStatement;
+
+    // Author names shared by every Book read; filled from committed rows only
+    private final AuthorPool authorPool = new AuthorPool(this::loadAuthorName);
+    // Authors inserted by the open write transaction, moved to authorPool once it commits;
+    // guarded by writeLock
+    private final Map<String, Long> pendingAuthorIds = new HashMap<>();
+
+    // Books recently read or written, so reopening one does not go back to SQLite
+    private final BookCache bookCache;
+
+    // Told about every committed write, so screens can update instead of reloading
+    private final BookChangeNotifier changeNotifier = new BookChangeNotifier();
+
+    // Ids for bulk inserts, reserved from the AUTOINCREMENT counter a chunk at a time
+    private final BlockIdAllocator idAllocator = new BlockIdAllocator(this::reserveIds, IMPORT_CHUNK_SIZE);
+
+    // Calls, rows and latency of every public operation; slow calls are logged with their arguments
+    private final QueryStats queryStats = new QueryStats();
+    // Canonical SQL per BookQuery shape
+    private final QueryShapeCache queryShapeCache = new QueryShapeCache(QUERY_SHAPE_CACHE_SIZE);
+    private final QueryStats.Operation addBookStats = queryStats.register("addBook");
+    private final QueryStats.Operation addBooksStats = queryStats.register("addBooks");
+    private final QueryStats.Operation getBookStats = queryStats.register("getBook");
+    private final QueryStats.Operation getAllBooksStats = queryStats.register("getAllBooks");
+    private final QueryStats.Operation updateBookStats = queryStats.register("updateBook");
+    private final QueryStats.Operation deleteBookStats = queryStats.register("deleteBook");
+    private final QueryStats.Operation queryBooksStats = queryStats.register("queryBooks");
+    private final QueryStats.Operation openBooksStats = queryStats.register("openBooks");
+    private final QueryStats.Operation statisticsStats = queryStats.register("getStatistics");
+    private final QueryStats.Operation searchStats = queryStats.register("searchBooks");
+
+    // The whole app shares one helper, and so one connection pool, for its lifetime
+    public static synchronized DatabaseHelper getInstance(Context context) {
+        if (instance == null) {
+            instance = new DatabaseHelper(context.getApplicationContext(), DATABASE_NAME);
+        }
+        return instance;
+    }
+
+    DatabaseHelper(Context context, String databaseName) {
+        this(context, databaseName, BookCache.DEFAULT_MAX_SIZE);
+    }
 
-    public DatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    DatabaseHelper(Context context, String databaseName, int bookCacheSize) {
+        super(context, databaseName, null, DATABASE_VERSION);
+        bookCache = new BookCache(bookCacheSize);
+        // Readers no longer wait for writers, and several reader connections can be open
+        setWriteAheadLoggingEnabled(true);
+        queryStats.setSlowQueryListener((operation, nanos, rows, args) -> Log.w(TAG, String.format(Locale.US,
+                "slow %s: %d ms, %d rows, args %s", operation.getName(), TimeUnit.NANOSECONDS.toMillis(nanos),
+                rows, QueryStats.formatArgs(args))));
+    }
+
+    // Runs for every connection in the pool, each of which has its own statement cache
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        db.setMaxSqlCacheSize(SQL_CACHE_SIZE);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_AUTHORS + "("
+                + COLUMN_ID + " INTEGER PRIMARY KEY,"
+                + COLUMN_NAME + " TEXT NOT NULL UNIQUE"
+                + ")");
         String CREATE_BOOKS_TABLE = "CREATE TABLE " + TABLE_BOOKS + "("
                 + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT,"
                 + COLUMN_TITLE + " TEXT,"
-                + COLUMN_AUTHOR + " TEXT,"
-                + COLUMN_PUBLISH_DATE + " TEXT,"
-                + COLUMN_IS_SCIENCE + " INTEGER,"
-                + COLUMN_IS_NOVEL + " INTEGER,"
-                + COLUMN_IS_CHILDREN + " INTEGER"
+                + COLUMN_AUTHOR_ID + " INTEGER REFERENCES " + TABLE_AUTHORS + "(" + COLUMN_ID + "),"
+                + COLUMN_PUBLISH_DATE + " INTEGER,"
+                + COLUMN_CATEGORIES + " INTEGER NOT NULL DEFAULT 0"
                 + ")";
         db.execSQL(CREATE_BOOKS_TABLE);
+        db.execSQL("CREATE INDEX " + INDEX_BOOKS_PUBLISH_DATE + " ON " + TABLE_BOOKS + "("
+                + COLUMN_PUBLISH_DATE + ", " + COLUMN_CATEGORIES + ")");
+        db.execSQL("CREATE INDEX " + INDEX_BOOKS_AUTHOR + " ON " + TABLE_BOOKS + "(" + COLUMN_AUTHOR_ID + ")");
+
+        // unicode61 with remove_diacritics=2 lets "so do" find "Số đỏ" (đ is its own letter to
+        // the tokenizer, so it is folded to d before indexing); the prefix indexes keep short
+        // "ab*" queries from expanding over the whole term list
+        db.execSQL("CREATE VIRTUAL TABLE " + TABLE_BOOKS_FTS + " USING fts4("
+                + COLUMN_TITLE + ", " + COLUMN_AUTHOR
+                + ", tokenize=unicode61 \"remove_diacritics=2\", prefix=\"2,3\")");
+        // The author is indexed by name, looked up from the row's author_id
+        String newAuthorName = "(SELECT " + COLUMN_NAME + " FROM " + TABLE_AUTHORS
+                + " WHERE " + COLUMN_ID + " = new." + COLUMN_AUTHOR_ID + ")";
+        db.execSQL("CREATE TRIGGER books_fts_insert AFTER INSERT ON " + TABLE_BOOKS + " BEGIN"
+                + " INSERT INTO " + TABLE_BOOKS_FTS + "(docid, " + COLUMN_TITLE + ", " + COLUMN_AUTHOR + ")"
+                + " VALUES (new." + COLUMN_ID + ", " + foldStroke("new." + COLUMN_TITLE) + ", "
+                + foldStroke(newAuthorName) + "); END");
+        db.execSQL("CREATE TRIGGER books_fts_update AFTER UPDATE OF " + COLUMN_TITLE + ", " + COLUMN_AUTHOR_ID
+                + " ON " + TABLE_BOOKS + " BEGIN"
+                + " UPDATE " + TABLE_BOOKS_FTS + " SET " + COLUMN_TITLE + " = " + foldStroke("new." + COLUMN_TITLE)
+                + ", " + COLUMN_AUTHOR + " = " + foldStroke(newAuthorName)
+                + " WHERE docid = new." + COLUMN_ID + "; END");
+        db.execSQL("CREATE TRIGGER books_fts_delete AFTER DELETE ON " + TABLE_BOOKS + " BEGIN"
+                + " DELETE FROM " + TABLE_BOOKS_FTS + " WHERE docid = old." + COLUMN_ID + "; END");
+
+        createStatisticsTable(db);
+    }
+
+    private static String foldStroke(String expression) {
+        return "replace(replace(" + expression + ", 'đ', 'd'), 'Đ', 'D')";
+    }
+
+    private static String yearOf(String epochDayExpression) {
+        return "CAST(strftime('%Y', " + epochDayExpression + " * 86400, 'unixepoch') AS INTEGER)";
+    }
+
+    // Triggers add and remove each book's count in the same statement, and so the same
+    // transaction, as the write; a count that reaches zero is dropped to keep the table small
+    private static void createStatisticsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE_BOOK_STATS + "("
+                + COLUMN_YEAR + " INTEGER NOT NULL, "
+                + COLUMN_CATEGORIES + " INTEGER NOT NULL, "
+                + COLUMN_BOOK_COUNT + " INTEGER NOT NULL, "
+                + "PRIMARY KEY(" + COLUMN_YEAR + ", " + COLUMN_CATEGORIES + ")) WITHOUT ROWID");
+        String countNew = "INSERT INTO " + TABLE_BOOK_STATS + "(" + COLUMN_YEAR + ", " + COLUMN_CATEGORIES + ", "
+                + COLUMN_BOOK_COUNT + ") SELECT " + yearOf("new." + COLUMN_PUBLISH_DATE) + ", new." + COLUMN_CATEGORIES
+                + ", 1 WHERE new." + COLUMN_PUBLISH_DATE + " IS NOT NULL"
+                + " ON CONFLICT(" + COLUMN_YEAR + ", " + COLUMN_CATEGORIES + ")"
+                + " DO UPDATE SET " + COLUMN_BOOK_COUNT + " = " + COLUMN_BOOK_COUNT + " + 1;";
+        String oldRow = " WHERE old." + COLUMN_PUBLISH_DATE + " IS NOT NULL"
+                + " AND " + COLUMN_YEAR + " = " + yearOf("old." + COLUMN_PUBLISH_DATE)
+                + " AND " + COLUMN_CATEGORIES + " = old." + COLUMN_CATEGORIES;
+        String uncountOld = "UPDATE " + TABLE_BOOK_STATS + " SET " + COLUMN_BOOK_COUNT + " = " + COLUMN_BOOK_COUNT
+                + " - 1" + oldRow + ";"
+                + " DELETE FROM " + TABLE_BOOK_STATS + oldRow + " AND " + COLUMN_BOOK_COUNT + " = 0;";
+        db.execSQL("CREATE TRIGGER book_stats_insert AFTER INSERT ON " + TABLE_BOOKS + " BEGIN "
+                + countNew + " END");
+        db.execSQL("CREATE TRIGGER book_stats_update AFTER UPDATE OF " + COLUMN_PUBLISH_DATE + ", "
+                + COLUMN_CATEGORIES + " ON " + TABLE_BOOKS + " BEGIN " + uncountOld + " " + countNew + " END");
+        db.execSQL("CREATE TRIGGER book_stats_delete AFTER DELETE ON " + TABLE_BOOKS + " BEGIN "
+                + uncountOld + " END");
+    }
+
+    private static void fillStatisticsTable(SQLiteDatabase db) {
+        db.execSQL("INSERT INTO " + TABLE_BOOK_STATS + "(" + COLUMN_YEAR + ", " + COLUMN_CATEGORIES + ", "
+                + COLUMN_BOOK_COUNT + ") SELECT " + YEAR_OF_PUBLISH_DATE + " AS y, " + COLUMN_CATEGORIES
+                + ", COUNT(*) FROM " + TABLE_BOOKS + " WHERE " + COLUMN_PUBLISH_DATE + " IS NOT NULL"
+                + " GROUP BY y, " + COLUMN_CATEGORIES);
     }
 
+    // Each step upgrades the schema by one version and keeps every existing row.
+    // Steps spell out their SQL so they keep producing that version's schema after later changes.
     @Override
     public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-        db.execSQL("DROP TABLE IF EXISTS " + TABLE_BOOKS);
-        onCreate(db);
+        if (oldVersion < 2) {
+            migrateToEpochDayDates(db);
+        }
+        if (oldVersion < 3) {
+            migrateToCategoryMask(db);
+        }
+        if (oldVersion < 4) {
+            migrateToFullTextSearch(db);
+        }
+        if (oldVersion < 5) {
+            migrateToStatisticsTable(db);
+        }
+        if (oldVersion < 6) {
+            migrateToAuthorsTable(db);
+        }
+    }
+
+    // Version 1 -> 2: convert 'yyyy-MM-dd' text to epoch days. Unparseable dates become NULL.
+    private static void migrateToEpochDayDates(SQLiteDatabase db) {
+        rebuildBooksTable(db, "id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT, author TEXT,"
+                        + " publish_date INTEGER, is_science INTEGER, is_novel INTEGER, is_children INTEGER",
+                "id, title, author, publish_date, is_science, is_novel, is_children",
+                "id, title, author, CAST(julianday(publish_date) - julianday('1970-01-01') AS INTEGER),"
+                        + " is_science, is_novel, is_children");
+        db.execSQL("CREATE INDEX idx_books_publish_date_categories"
+                + " ON books(publish_date, is_science, is_novel, is_children)");
+    }
+
+    // Version 2 -> 3: pack the three category flags into the categories bitmask
+    private static void migrateToCategoryMask(SQLiteDatabase db) {
+        rebuildBooksTable(db, "id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT, author TEXT,"
+                        + " publish_date INTEGER, categories INTEGER NOT NULL DEFAULT 0",
+                "id, title, author, publish_date, categories",
+                "id, title, author, publish_date,"
+                        + " (IFNULL(is_science, 0) != 0) | ((IFNULL(is_novel, 0) != 0) << 1)"
+                        + " | ((IFNULL(is_children, 0) != 0) << 2)");
+        db.execSQL("CREATE INDEX idx_books_publish_date_categories ON books(publish_date, categories)");
+    }
+
+    // Version 3 -> 4: add the books_fts index, fill it from the existing rows and keep it in sync
+    private static void migrateToFullTextSearch(SQLiteDatabase db) {
+        db.execSQL("CREATE VIRTUAL TABLE books_fts USING fts4(title, author,"
+                + " tokenize=unicode61 \"remove_diacritics=2\", prefix=\"2,3\")");
+        db.execSQL("INSERT INTO books_fts(docid, title, author) SELECT id,"
+                + " replace(replace(title, 'đ', 'd'), 'Đ', 'D'), replace(replace(author, 'đ', 'd'), 'Đ', 'D')"
+                + " FROM books");
+        db.execSQL("CREATE TRIGGER books_fts_insert AFTER INSERT ON books BEGIN"
+                + " INSERT INTO books_fts(docid, title, author) VALUES (new.id,"
+                + " replace(replace(new.title, 'đ', 'd'), 'Đ', 'D'),"
+                + " replace(replace(new.author, 'đ', 'd'), 'Đ', 'D')); END");
+        db.execSQL("CREATE TRIGGER books_fts_update AFTER UPDATE OF title, author ON books BEGIN"
+                + " UPDATE books_fts SET title = replace(replace(new.title, 'đ', 'd'), 'Đ', 'D'),"
+                + " author = replace(replace(new.author, 'đ', 'd'), 'Đ', 'D') WHERE docid = new.id; END");
+        db.execSQL("CREATE TRIGGER books_fts_delete AFTER DELETE ON books BEGIN"
+                + " DELETE FROM books_fts WHERE docid = old.id; END");
+    }
+
+    // Version 4 -> 5: add book_stats, count the existing rows into it and keep it in sync
+    private static void migrateToStatisticsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE book_stats(year INTEGER NOT NULL, categories INTEGER NOT NULL,"
+                + " book_count INTEGER NOT NULL, PRIMARY KEY(year, categories)) WITHOUT ROWID");
+        db.execSQL("INSERT INTO book_stats(year, categories, book_count)"
+                + " SELECT CAST(strftime('%Y', publish_date * 86400, 'unixepoch') AS INTEGER) AS y, categories,"
+                + " COUNT(*) FROM books WHERE publish_date IS NOT NULL GROUP BY y, categories");
+        createVersion5StatisticsTriggers(db);
+    }
+
+    // The book_stats triggers as of version 5; version 6 recreates them after rebuilding books
+    private static void createVersion5StatisticsTriggers(SQLiteDatabase db) {
+        db.execSQL("CREATE TRIGGER book_stats_insert AFTER INSERT ON books BEGIN"
+                + " INSERT INTO book_stats(year, categories, book_count)"
+                + " SELECT CAST(strftime('%Y', new.publish_date * 86400, 'unixepoch') AS INTEGER),"
+                + " new.categories, 1 WHERE new.publish_date IS NOT NULL"
+                + " ON CONFLICT(year, categories) DO UPDATE SET book_count = book_count + 1; END");
+        String oldRow = " WHERE old.publish_date IS NOT NULL"
+                + " AND year = CAST(strftime('%Y', old.publish_date * 86400, 'unixepoch') AS INTEGER)"
+                + " AND categories = old.categories";
+        db.execSQL("CREATE TRIGGER book_stats_update AFTER UPDATE OF publish_date, categories ON books BEGIN"
+                + " UPDATE book_stats SET book_count = book_count - 1" + oldRow + ";"
+                + " DELETE FROM book_stats" + oldRow + " AND book_count = 0;"
+                + " INSERT INTO book_stats(year, categories, book_count)"
+                + " SELECT CAST(strftime('%Y', new.publish_date * 86400, 'unixepoch') AS INTEGER),"
+                + " new.categories, 1 WHERE new.publish_date IS NOT NULL"
+                + " ON CONFLICT(year, categories) DO UPDATE SET book_count = book_count + 1; END");
+        db.execSQL("CREATE TRIGGER book_stats_delete AFTER DELETE ON books BEGIN"
+                + " UPDATE book_stats SET book_count = book_count - 1" + oldRow + ";"
+                + " DELETE FROM book_stats" + oldRow + " AND book_count = 0; END");
+    }
+
+    // Version 5 -> 6: move author names into authors and point books at them by author_id.
+    // Rebuilding books drops its indexes and triggers, so they are created again; books_fts
+    // and book_stats keep their rows, which do not change.
+    private static void migrateToAuthorsTable(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE authors(id INTEGER PRIMARY KEY, name TEXT NOT NULL UNIQUE)");
+        db.execSQL("INSERT INTO authors(name) SELECT DISTINCT author FROM books WHERE author IS NOT NULL");
+        rebuildBooksTable(db, "id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT,"
+                        + " author_id INTEGER REFERENCES authors(id), publish_date INTEGER,"
+                        + " categories INTEGER NOT NULL DEFAULT 0",
+                "id, title, author_id, publish_date, categories",
+                "id, title, (SELECT id FROM authors WHERE name = books.author), publish_date, categories");
+        db.execSQL("CREATE INDEX idx_books_publish_date_categories ON books(publish_date, categories)");
+        db.execSQL("CREATE INDEX idx_books_author ON books(author_id)");
+        db.execSQL("CREATE TRIGGER books_fts_insert AFTER INSERT ON books BEGIN"
+                + " INSERT INTO books_fts(docid, title, author) VALUES (new.id,"
+                + " replace(replace(new.title, 'đ', 'd'), 'Đ', 'D'),"
+                + " replace(replace((SELECT name FROM authors WHERE id = new.author_id), 'đ', 'd'), 'Đ', 'D'));"
+                + " END");
+        db.execSQL("CREATE TRIGGER books_fts_update AFTER UPDATE OF title, author_id ON books BEGIN"
+                + " UPDATE books_fts SET title = replace(replace(new.title, 'đ', 'd'), 'Đ', 'D'),"
+                + " author = replace(replace((SELECT name FROM authors WHERE id = new.author_id),"
+                + " 'đ', 'd'), 'Đ', 'D') WHERE docid = new.id; END");
+        db.execSQL("CREATE TRIGGER books_fts_delete AFTER DELETE ON books BEGIN"
+                + " DELETE FROM books_fts WHERE docid = old.id; END");
+        createVersion5StatisticsTriggers(db);
+    }
+
+    // SQLite cannot change or drop columns in place, so copy the rows into a new table
+    // and swap it in. Indexes and triggers on the old table go with it and must be recreated.
+    private static void rebuildBooksTable(SQLiteDatabase db, String columnDefinitions,
+                                          String insertColumns, String selectExpressions) {
+        db.execSQL("CREATE TABLE books_new(" + columnDefinitions + ")");
+        db.execSQL("INSERT INTO books_new(" + insertColumns + ") SELECT " + selectExpressions + " FROM books");
+        // Keep the AUTOINCREMENT high-water mark so ids of deleted books are not reused
+        db.execSQL("UPDATE sqlite_sequence SET seq = (SELECT seq FROM sqlite_sequence WHERE name = 'books')"
+                + " WHERE name = 'books_new'");
+        db.execSQL("DROP TABLE books");
+        db.execSQL("ALTER TABLE books_new RENAME TO books");
     }
 
-    // Add a new book
+    // Add a new book; returns its id once the insert is committed
+    @Override
     public long addBook(Book book) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-
-        values.put(COLUMN_TITLE, book.getTitle());
-        values.put(COLUMN_AUTHOR, book.getAuthor());
-        values.put(COLUMN_PUBLISH_DATE, dateFormat.format(book.getPublishDate()));
-        values.put(COLUMN_IS_SCIENCE, book.isScience() ? 1 : 0);
-        values.put(COLUMN_IS_NOVEL, book.isNovel() ? 1 : 0);
-        values.put(COLUMN_IS_CHILDREN, book.isChildren() ? 1 : 0);
-
-        long id = db.insert(TABLE_BOOKS, null, values);
-        db.close();
+        long start = System.nanoTime();
+        long id = writer.submit(new GroupCommitWriter.Write() {
+            @Override
+            public long apply() {
+                SQLiteStatement statement = getInsertStatement();
+                bindBook(statement, book);
+                long id = statement.executeInsert();
+                statement.clearBindings();
+                return id;
+            }
+
+            @Override
+            public void committed(long id) {
+                if (id != -1) {
+                    Book cached = new Book(book);
+                    cached.setId((int) id);
+                    bookCache.put(cached);
+                    changeNotifier.publish(BookChangeEvent.Type.INSERTED, (int) id);
+                }
+            }
+        });
+        queryStats.record(addBookStats, start, id != -1 ? 1 : 0, book.getTitle());
         return id;
     }
 
+    // Add many books, committing every IMPORT_CHUNK_SIZE rows in one transaction.
+    // The books are pulled from the iterable a chunk at a time, so it can stream
+    // from a file. Chunks committed before a failure stay in the table.
+    // Each book gets its id from idAllocator before the insert, so concurrent imports
+    // never wait on the database for one.
+    @Override
+    public int addBooks(Iterable<Book> books, ImportProgressListener progressListener) {
+        long start = System.nanoTime();
+        SQLiteDatabase db = getWritableDatabase();
+        Iterator<Book> iterator = books.iterator();
+        List<Book> chunk = new ArrayList<>(IMPORT_CHUNK_SIZE);
+        int imported = 0;
+
+        while (iterator.hasNext()) {
+            // A chunk is read and numbered before its transaction: a block reserved inside it
+            // would be rolled back with a failed chunk while idAllocator kept handing it out
+            chunk.clear();
+            while (chunk.size() < IMPORT_CHUNK_SIZE && iterator.hasNext()) {
+                Book book = iterator.next();
+                book.setId((int) idAllocator.nextId());
+                chunk.add(book);
+            }
+
+            // The lock is released between chunks so single edits are not held up by a long import
+            synchronized (writeLock) {
+                SQLiteStatement statement = getInsertWithIdStatement();
+                int chunkSize = 0;
+                boolean successful = false;
+                db.beginTransactionNonExclusive();
+                try {
+                    for (Book book : chunk) {
+                        bindBook(statement, book);
+                        statement.bindLong(5, book.getId());
+                        statement.executeInsert();
+                        chunkSize++;
+                    }
+                    db.setTransactionSuccessful();
+                    successful = true;
+                } finally {
+                    statement.clearBindings();
+                    endTransaction(db, successful);
+                }
+                imported += chunkSize;
+                if (chunkSize > 0) {
+                    changeNotifier.publish(BookChangeEvent.Type.BULK, 0);
+                }
+            }
+
+            if (progressListener != null) {
+                progressListener.onProgress(imported);
+            }
+        }
+        queryStats.record(addBooksStats, start, imported);
+        return imported;
+    }
+
     // Get a single book
+    @Override
     public Book getBook(int id) {
+        long start = System.nanoTime();
+        Book cached = bookCache.get(id);
+        if (cached != null) {
+            queryStats.record(getBookStats, start, 1, id);
+            return cached;
+        }
+
+        long stamp = bookCache.getWriteStamp();
         SQLiteDatabase db = this.getReadableDatabase();
 
         Cursor cursor = db.query(TABLE_BOOKS, null, COLUMN_ID + " = ?",
                 new String[]{String.valueOf(id)}, null, null, null);
 
         Book book = null;
-        if (cursor != null && cursor.moveToFirst()) {
-            book = cursorToBook(cursor);
-            cursor.close();
+        if (cursor.moveToFirst()) {
+            book = new BookRowMapper(cursor, authorPool).map(cursor);
+            bookCache.putIfUnchanged(Collections.singletonList(book), stamp);
         }
+        cursor.close();
 
-        db.close();
+        queryStats.record(getBookStats, start, book != null ? 1 : 0, id);
         return book;
     }
 
     // Get all books
+    @Override
     public List<Book> getAllBooks() {
+        long start = System.nanoTime();
         List<Book> bookList = new ArrayList<>();
         String selectQuery = "SELECT * FROM " + TABLE_BOOKS;
 
         SQLiteDatabase db = this.getReadableDatabase();
         Cursor cursor = db.rawQuery(selectQuery, null);
 
+        BookRowMapper mapper = new BookRowMapper(cursor, authorPool);
         if (cursor.moveToFirst()) {
             do {
-                Book book = cursorToBook(cursor);
+                Book book = mapper.map(cursor);
                 bookList.add(book);
             } while (cursor.moveToNext());
         }
 
         cursor.close();
-        db.close();
+        queryStats.record(getAllBooksStats, start, bookList.size());
         return bookList;
     }
 
+    // Get one page of books ordered by id, starting after the given id (keyset pagination)
+    @Override
+    public List<Book> getBooksAfterId(int afterId, int limit) {
+        Book after = new Book();
+        after.setId(afterId);
+        return queryBooks(BookQuery.builder().orderBy(BookQuery.Order.ID).after(after).limit(limit).build());
+    }
+
     // Update a book
+    @Override
     public int updateBook(Book book) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        ContentValues values = new ContentValues();
-
-        values.put(COLUMN_TITLE, book.getTitle());
-        values.put(COLUMN_AUTHOR, book.getAuthor());
-        values.put(COLUMN_PUBLISH_DATE, dateFormat.format(book.getPublishDate()));
-        values.put(COLUMN_IS_SCIENCE, book.isScience() ? 1 : 0);
-        values.put(COLUMN_IS_NOVEL, book.isNovel() ? 1 : 0);
-        values.put(COLUMN_IS_CHILDREN, book.isChildren() ? 1 : 0);
+        long start = System.nanoTime();
+        int updated = (int) writer.submit(new GroupCommitWriter.Write() {
+            @Override
+            public long apply() {
+                if (updateStatement == null) {
+                    updateStatement = getWritableDatabase().compileStatement("UPDATE " + TABLE_BOOKS + " SET "
+                            + COLUMN_TITLE + " = ?, " + COLUMN_AUTHOR_ID + " = ?, " + COLUMN_PUBLISH_DATE + " = ?, "
+                            + COLUMN_CATEGORIES + " = ? WHERE " + COLUMN_ID + " = ?");
+                }
+                bindBook(updateStatement, book);
+                updateStatement.bindLong(5, book.getId());
+                int result = updateStatement.executeUpdateDelete();
+                updateStatement.clearBindings();
+                return result;
+            }
 
-        int result = db.update(TABLE_BOOKS, values, COLUMN_ID + " = ?",
-                new String[]{String.valueOf(book.getId())});
-        db.close();
-        return result;
+            @Override
+            public void committed(long result) {
+                if (result > 0) {
+                    bookCache.put(book);
+                    changeNotifier.publish(BookChangeEvent.Type.UPDATED, book.getId());
+                } else {
+                    bookCache.remove(book.getId());
+                }
+            }
+        });
+        queryStats.record(updateBookStats, start, updated, book.getId());
+        return updated;
     }
 
     // Delete a book
+    @Override
     public void deleteBook(int id) {
-        SQLiteDatabase db = this.getWritableDatabase();
-        db.delete(TABLE_BOOKS, COLUMN_ID + " = ?", new String[]{String.valueOf(id)});
-        db.close();
+        long start = System.nanoTime();
+        long deleted = writer.submit(new GroupCommitWriter.Write() {
+            @Override
+            public long apply() {
+                if (deleteStatement == null) {
+                    deleteStatement = getWritableDatabase().compileStatement("DELETE FROM " + TABLE_BOOKS
+                            + " WHERE " + COLUMN_ID + " = ?");
+                }
+                deleteStatement.bindLong(1, id);
+                int result = deleteStatement.executeUpdateDelete();
+                deleteStatement.clearBindings();
+                return result;
+            }
+
+            @Override
+            public void committed(long result) {
+                bookCache.remove(id);
+                if (result > 0) {
+                    changeNotifier.publish(BookChangeEvent.Type.DELETED, id);
+                }
+            }
+        });
+        queryStats.record(deleteBookStats, start, deleted, id);
     }
 
-    // Get books by year range and categories
-    public List<Book> getBooksByYearRangeAndCategories(int startYear, int endYear, 
-                                                      boolean isScience, boolean isNovel, boolean isChildren) {
-        List<Book> bookList = new ArrayList<>();
+    // Get books by year range having any of the categories in the mask (0 = any category)
+    @Override
+    public List<Book> getBooksByYearRangeAndCategories(int startYear, int endYear, int categoryMask) {
+        return queryBooks(yearRangeQuery(startYear, endYear, categoryMask).build());
+    }
+
+    @Override
+    public CursorBookList openBooksByYearRangeAndCategories(int startYear, int endYear, int categoryMask) {
+        return openBooks(yearRangeQuery(startYear, endYear, categoryMask).build());
+    }
+
+    // One page of the same filter, ordered by (publish_date, id) and starting after the given
+    // book (null for the first page)
+    @Override
+    public List<Book> getBooksByYearRangeAndCategories(int startYear, int endYear, int categoryMask,
+                                                       Book after, int limit) {
+        return queryBooks(yearRangeQuery(startYear, endYear, categoryMask)
+                .orderBy(BookQuery.Order.PUBLISH_DATE).after(after).limit(limit).build());
+    }
+
+    // Books matching the query, in its order. Paged queries are what is on screen, so their
+    // rows are also cached as the ones most likely to be opened next.
+    @Override
+    public List<Book> queryBooks(BookQuery query) {
+        long start = System.nanoTime();
+        String[] args = query.bindArgs();
+        List<Book> bookList = new ArrayList<>(query.getLimit() >= 0 ? query.getLimit() : 16);
+
+        long stamp = bookCache.getWriteStamp();
+        Cursor cursor = getReadableDatabase().rawQuery(queryShapeCache.sqlFor(query), args);
+        BookRowMapper mapper = new BookRowMapper(cursor, authorPool);
+        while (cursor.moveToNext()) {
+            bookList.add(mapper.map(cursor));
+        }
+        cursor.close();
+        if (query.getLimit() >= 0) {
+            bookCache.putIfUnchanged(bookList, stamp);
+        }
+        queryStats.record(queryBooksStats, start, bookList.size(), args);
+        return bookList;
+    }
+
+    // The same as a list backed by the open cursor; rows are decoded as they are read.
+    // The caller owns the list and must close it.
+    @Override
+    public CursorBookList openBooks(BookQuery query) {
+        long start = System.nanoTime();
+        String[] args = query.bindArgs();
+        Cursor cursor = getReadableDatabase().rawQuery(queryShapeCache.sqlFor(query), args);
+        try {
+            CursorBookList books = new CursorBookList(cursor, authorPool);
+            queryStats.record(openBooksStats, start, books.size(), args);
+            return books;
+        } catch (RuntimeException e) {
+            cursor.close();
+            throw e;
+        }
+    }
+
+    // Counts per year, per category and for the top authors, without building any Book.
+    // Years and categories come from one GROUP BY over the (publish_date, categories) index,
+    // so memory grows with the number of groups rather than with the number of rows.
+    @Override
+    public BookStatistics getStatistics(int startYear, int endYear, int categoryMask, int authorLimit) {
+        long start = System.nanoTime();
         SQLiteDatabase db = this.getReadableDatabase();
+        BookStatistics statistics = new BookStatistics();
 
-        String startDate = startYear + "-01-01";
-        String endDate = endYear + "-12-31";
-        
-        StringBuilder queryBuilder = new StringBuilder();
-        queryBuilder.append("SELECT * FROM ").append(TABLE_BOOKS)
-                .append(" WHERE ").append(COLUMN_PUBLISH_DATE)
-                .append(" BETWEEN ? AND ?");
-        
         List<String> args = new ArrayList<>();
-        args.add(startDate);
-        args.add(endDate);
-        
-        // Add category filters if any is selected
-        if (isScience || isNovel || isChildren) {
-            queryBuilder.append(" AND (");
-            List<String> categoryConditions = new ArrayList<>();
-            
-            if (isScience) {
-                categoryConditions.add(COLUMN_IS_SCIENCE + " = 1");
-            }
-            if (isNovel) {
-                categoryConditions.add(COLUMN_IS_NOVEL + " = 1");
-            }
-            if (isChildren) {
-                categoryConditions.add(COLUMN_IS_CHILDREN + " = 1");
-            }
-            
-            queryBuilder.append(String.join(" OR ", categoryConditions));
-            queryBuilder.append(")");
+        String selection = buildYearRangeSelection(EpochDays.firstDayOfYear(startYear),
+                EpochDays.lastDayOfYear(endYear), categoryMask, args);
+        String[] selectionArgs = args.toArray(new String[0]);
+
+        // Counts come from book_stats: at most 8 rows per year, whatever the catalog size
+        List<String> countArgs = new ArrayList<>();
+        countArgs.add(String.valueOf(startYear));
+        countArgs.add(String.valueOf(endYear));
+        String countSelection = COLUMN_YEAR + " BETWEEN ? AND ?";
+        if (categoryMask != 0) {
+            countSelection += " AND (" + COLUMN_CATEGORIES + " & ?) != 0";
+            countArgs.add(String.valueOf(categoryMask));
         }
-        
-        Cursor cursor = db.rawQuery(queryBuilder.toString(), args.toArray(new String[0]));
-        
-        if (cursor.moveToFirst()) {
-            do {
-                Book book = cursorToBook(cursor);
-                bookList.add(book);
-            } while (cursor.moveToNext());
+        Cursor cursor = db.rawQuery("SELECT " + COLUMN_YEAR + ", " + COLUMN_CATEGORIES + ", " + COLUMN_BOOK_COUNT
+                + " FROM " + TABLE_BOOK_STATS + " WHERE " + countSelection, countArgs.toArray(new String[0]));
+        while (cursor.moveToNext()) {
+            statistics.addCount(cursor.getInt(0), cursor.getInt(1), cursor.getInt(2));
+        }
+        cursor.close();
+
+        // Grouped on the integer key; only the authors that make the list are looked up by name
+        cursor = db.rawQuery("SELECT " + COLUMN_AUTHOR_ID + ", COUNT(*) AS book_count FROM " + TABLE_BOOKS
+                + " WHERE " + selection + " GROUP BY " + COLUMN_AUTHOR_ID
+                + " ORDER BY book_count DESC, (SELECT " + COLUMN_NAME + " FROM " + TABLE_AUTHORS
+                + " WHERE " + TABLE_AUTHORS + "." + COLUMN_ID + " = " + COLUMN_AUTHOR_ID + ")"
+                + " LIMIT " + authorLimit, selectionArgs);
+        while (cursor.moveToNext()) {
+            String author = cursor.isNull(0) ? null : authorPool.name(cursor.getLong(0));
+            statistics.addAuthorCount(author, cursor.getInt(1));
+        }
+        cursor.close();
+        queryStats.record(statisticsStats, start, statistics.getTotalCount(), startYear, endYear, categoryMask);
+        return statistics;
+    }
+
+    // Books whose title or author contain words starting with each word of the query.
+    // Titles that start with the first word rank first, then shorter (closer) titles; books
+    // that match only through the author follow.
+    @Override
+    public List<Book> searchBooks(String query, int limit) {
+        long start = System.nanoTime();
+        List<Book> bookList = new ArrayList<>();
+        String matchExpression = toMatchExpression(query);
+        if (matchExpression.isEmpty()) {
+            queryStats.record(searchStats, start, 0, matchExpression);
+            return bookList;
+        }
+
+        // Ranked: at most SEARCH_CANDIDATES books with the first word in the title. offsets()
+        // lists "column term byte size" per hit; "0 0 0" is the first query word at the very
+        // start of the title, and unlike LIKE it ignores diacritics as the index does. The folded
+        // title has the original's length, so the ranking never reads the books table.
+        SQLiteDatabase db = getReadableDatabase();
+        Cursor cursor = db.rawQuery("SELECT b.* FROM (SELECT docid,"
+                + " (' ' || offsets(" + TABLE_BOOKS_FTS + ") || ' ') LIKE '% 0 0 0 %' AS title_start,"
+                + " length(" + COLUMN_TITLE + ") AS title_length"
+                + " FROM " + TABLE_BOOKS_FTS + " WHERE " + TABLE_BOOKS_FTS + " MATCH ?"
+                + " LIMIT " + SEARCH_CANDIDATES + ") f"
+                + " JOIN " + TABLE_BOOKS + " b ON b." + COLUMN_ID + " = f.docid"
+                + " ORDER BY f.title_start DESC, f.title_length, b." + COLUMN_ID + " LIMIT " + limit,
+                new String[]{COLUMN_TITLE + ":" + matchExpression});
+        BookRowMapper mapper = new BookRowMapper(cursor, authorPool);
+        Set<Integer> found = new HashSet<>();
+        while (cursor.moveToNext()) {
+            Book book = mapper.map(cursor);
+            bookList.add(book);
+            found.add(book.getId());
         }
-        
         cursor.close();
-        db.close();
+
+        // The rest of the list from any match, in index order; at most found.size() of these
+        // are already listed, so limit rows are always enough
+        if (bookList.size() < limit) {
+            cursor = db.rawQuery("SELECT b.* FROM " + TABLE_BOOKS_FTS
+                    + " JOIN " + TABLE_BOOKS + " b ON b." + COLUMN_ID + " = " + TABLE_BOOKS_FTS + ".docid"
+                    + " WHERE " + TABLE_BOOKS_FTS + " MATCH ? LIMIT " + limit, new String[]{matchExpression});
+            mapper = new BookRowMapper(cursor, authorPool);
+            while (bookList.size() < limit && cursor.moveToNext()) {
+                Book book = mapper.map(cursor);
+                if (!found.contains(book.getId())) {
+                    bookList.add(book);
+                }
+            }
+            cursor.close();
+        }
+        queryStats.record(searchStats, start, bookList.size(), matchExpression);
         return bookList;
     }
 
-    // Get the next available ID
-    public int getNextId() {
-        SQLiteDatabase db = this.getReadableDatabase();
-        int nextId = 1; // Default starting ID
-        
-        Cursor cursor = db.rawQuery("SELECT MAX(" + COLUMN_ID + ") FROM " + TABLE_BOOKS, null);
-        if (cursor.moveToFirst()) {
-            nextId = cursor.getInt(0) + 1;
+    // "Số đỏ" -> "Số* do*": every word becomes a prefix term, FTS operators and quotes are
+    // dropped, and đ is folded the same way as in the index
+    static String toMatchExpression(String query) {
+        StringBuilder expression = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= query.length(); i++) {
+            char c = i < query.length() ? query.charAt(i) : ' ';
+            if (c == 'đ' || c == 'Đ') {
+                word.append('d');
+            } else if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                if (expression.length() > 0) {
+                    expression.append(' ');
+                }
+                expression.append(word).append('*');
+                word.setLength(0);
+            }
+        }
+        return expression.toString();
+    }
+
+    // SQLite's plan for the statistics query, one detail line per step
+    List<String> explainYearRangeQuery(int startYear, int endYear, int categoryMask) {
+        return explain(yearRangeQuery(startYear, endYear, categoryMask).build());
+    }
+
+    List<String> explain(BookQuery query) {
+        Cursor cursor = getReadableDatabase().rawQuery("EXPLAIN QUERY PLAN " + query.toSql(), query.bindArgs());
+
+        List<String> plan = new ArrayList<>();
+        int detailColumn = cursor.getColumnIndexOrThrow("detail");
+        while (cursor.moveToNext()) {
+            plan.add(cursor.getString(detailColumn));
         }
-        
         cursor.close();
-        db.close();
-        return nextId;
+        return plan;
     }
 
-    // Helper method to convert cursor to Book object
-    @SuppressLint("Range")
-    private Book cursorToBook(Cursor cursor) {
-        Book book = new Book();
-        book.setId(cursor.getInt(cursor.getColumnIndex(COLUMN_ID)));
-        book.setTitle(cursor.getString(cursor.getColumnIndex(COLUMN_TITLE)));
-        book.setAuthor(cursor.getString(cursor.getColumnIndex(COLUMN_AUTHOR)));
+    private static BookQuery.Builder yearRangeQuery(int startYear, int endYear, int categoryMask) {
+        return BookQuery.builder().publishedBetween(startYear, endYear).categories(categoryMask);
+    }
+
+    private String buildYearRangeSelection(int firstDay, int lastDay, int categoryMask, List<String> args) {
+        StringBuilder selection = new StringBuilder();
+        selection.append(COLUMN_PUBLISH_DATE).append(" BETWEEN ? AND ?");
+        args.add(String.valueOf(firstDay));
+        args.add(String.valueOf(lastDay));
         
-        String dateStr = cursor.getString(cursor.getColumnIndex(COLUMN_PUBLISH_DATE));
+        // One bitwise test covers any combination of selected categories
+        if (categoryMask != 0) {
+            selection.append(" AND (").append(COLUMN_CATEGORIES).append(" & ?) != 0");
+            args.add(String.valueOf(categoryMask));
+        }
+        return selection.toString();
+    }
+
+    // Recount book_stats from the books table, e.g. if it is ever suspected to be out of step
+    public void rebuildStatistics() {
+        synchronized (writeLock) {
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransactionNonExclusive();
+            try {
+                db.execSQL("DELETE FROM " + TABLE_BOOK_STATS);
+                fillStatisticsTable(db);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    // Write and commit counts show how well concurrent edits are being batched
+    GroupCommitWriter getWriter() {
+        return writer;
+    }
+
+    @Override
+    public BookChangeNotifier getChangeNotifier() {
+        return changeNotifier;
+    }
+
+    // Per-operation counts and latency percentiles; dump() for a readable summary
+    public QueryStats getQueryStats() {
+        return queryStats;
+    }
+
+    // Author names shared by the books read from this helper
+    public AuthorPool getAuthorPool() {
+        return authorPool;
+    }
+
+    // Hit and miss counts of the SQL built per query shape
+    public QueryShapeCache getQueryShapeCache() {
+        return queryShapeCache;
+    }
+
+    // Hit, miss and eviction counts of the book cache
+    public BookCache getBookCache() {
+        return bookCache;
+    }
+
+    // Reserve count ids past the AUTOINCREMENT counter of books and return the first.
+    // AUTOINCREMENT never hands out an id at or below the counter, so the reserved ids
+    // stay free for explicit inserts even if the process dies before using them.
+    long reserveIds(int count) {
+        synchronized (writeLock) {
+            SQLiteDatabase db = getWritableDatabase();
+            // Nested in a caller's transaction, the reservation would roll back with it
+            if (db.inTransaction()) {
+                throw new IllegalStateException("ids must be reserved outside a write transaction");
+            }
+            db.beginTransactionNonExclusive();
+            try {
+                long last = DatabaseUtils.longForQuery(db, "SELECT IFNULL(MAX(seq), 0) FROM sqlite_sequence"
+                        + " WHERE name = ?", new String[]{TABLE_BOOKS});
+                Object[] args = {last + count, TABLE_BOOKS};
+                db.execSQL("UPDATE sqlite_sequence SET seq = ? WHERE name = ?", args);
+                if (DatabaseUtils.longForQuery(db, "SELECT changes()", null) == 0) {
+                    db.execSQL("INSERT INTO sqlite_sequence(seq, name) VALUES (?, ?)", args);
+                }
+                db.setTransactionSuccessful();
+                return last + 1;
+            } finally {
+                db.endTransaction();
+            }
+        }
+    }
+
+    private SQLiteStatement getInsertStatement() {
+        if (insertStatement == null) {
+            insertStatement = getWritableDatabase().compileStatement("INSERT INTO " + TABLE_BOOKS + "("
+                    + COLUMN_TITLE + ", " + COLUMN_AUTHOR_ID + ", " + COLUMN_PUBLISH_DATE + ", "
+                    + COLUMN_CATEGORIES + ") VALUES (?, ?, ?, ?)");
+        }
+        return insertStatement;
+    }
+
+    // Insert with the id bound to parameter 5, as for the update statement
+    private SQLiteStatement getInsertWithIdStatement() {
+        if (insertWithIdStatement == null) {
+            insertWithIdStatement = getWritableDatabase().compileStatement("INSERT INTO " + TABLE_BOOKS + "("
+                    + COLUMN_TITLE + ", " + COLUMN_AUTHOR_ID + ", " + COLUMN_PUBLISH_DATE + ", "
+                    + COLUMN_CATEGORIES + ", " + COLUMN_ID + ") VALUES (?, ?, ?, ?, ?)");
+        }
+        return insertWithIdStatement;
+    }
+
+    @Override
+    public synchronized void close() {
+        synchronized (writeLock) {
+            if (insertStatement != null) {
+                insertStatement.close();
+                insertStatement = null;
+            }
+            if (insertWithIdStatement != null) {
+                insertWithIdStatement.close();
+                insertWithIdStatement = null;
+            }
+            if (updateStatement != null) {
+                updateStatement.close();
+                updateStatement = null;
+            }
+            if (deleteStatement != null) {
+                deleteStatement.close();
+                deleteStatement = null;
+            }
+            if (insertAuthorStatement != null) {
+                insertAuthorStatement.close();
+                insertAuthorStatement = null;
+            }
+            if (authorIdStatement != null) {
+                authorIdStatement.close();
+                authorIdStatement = null;
+            }
+        }
+        super.close();
+    }
+
+    // Bind title, author id, date and categories to parameters 1-4 of an insert/update statement.
+    // Runs inside a write transaction, since a new author is inserted on the way.
+    private void bindBook(SQLiteStatement statement, Book book) {
+        bindNullableString(statement, 1, book.getTitle());
+        if (book.getAuthor() == null) {
+            statement.bindNull(2);
+        } else {
+            statement.bindLong(2, authorIdFor(book.getAuthor()));
+        }
+        if (book.getPublishDate() == null) {
+            statement.bindNull(3);
+        } else {
+            statement.bindLong(3, EpochDays.fromDate(book.getPublishDate()));
+        }
+        statement.bindLong(4, book.getCategories());
+    }
+
+    // Id of the author with this name, inserting the author if it is new; under writeLock
+    private long authorIdFor(String name) {
+        long id = authorPool.idOf(name);
+        if (id != -1) {
+            return id;
+        }
+        Long pending = pendingAuthorIds.get(name);
+        if (pending != null) {
+            return pending;
+        }
+
+        SQLiteDatabase db = getWritableDatabase();
+        if (insertAuthorStatement == null) {
+            insertAuthorStatement = db.compileStatement("INSERT OR IGNORE INTO " + TABLE_AUTHORS
+                    + "(" + COLUMN_NAME + ") VALUES (?)");
+            authorIdStatement = db.compileStatement("SELECT " + COLUMN_ID + " FROM " + TABLE_AUTHORS
+                    + " WHERE " + COLUMN_NAME + " = ?");
+        }
+        insertAuthorStatement.bindString(1, name);
+        id = insertAuthorStatement.executeInsert();
+        insertAuthorStatement.clearBindings();
+        if (id == -1) {
+            // Already stored, e.g. by an earlier run of the app
+            authorIdStatement.bindString(1, name);
+            id = authorIdStatement.simpleQueryForLong();
+            authorIdStatement.clearBindings();
+        }
+        pendingAuthorIds.put(name, id);
+        return id;
+    }
+
+    // End a write transaction; successful says whether setTransactionSuccessful was reached
+    private void endTransaction(SQLiteDatabase db, boolean successful) {
+        boolean committed = false;
         try {
-            book.setPublishDate(dateFormat.parse(dateStr));
-        } catch (ParseException e) {
-            book.setPublishDate(new Date()); // Default to current date if parsing fails
+            db.endTransaction();
+            committed = successful;
+        } finally {
+            settlePendingAuthors(committed);
+        }
+    }
+
+    // Authors inserted by a committed transaction join the pool; a rollback forgets them
+    private void settlePendingAuthors(boolean committed) {
+        if (committed) {
+            for (Map.Entry<String, Long> entry : pendingAuthorIds.entrySet()) {
+                authorPool.put(entry.getValue(), entry.getKey());
+            }
+        }
+        pendingAuthorIds.clear();
+    }
+
+    private String loadAuthorName(long id) {
+        Cursor cursor = getReadableDatabase().rawQuery("SELECT " + COLUMN_NAME + " FROM " + TABLE_AUTHORS
+                + " WHERE " + COLUMN_ID + " = ?", new String[]{String.valueOf(id)});
+        try {
+            return cursor.moveToFirst() ? cursor.getString(0) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private static void bindNullableString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
         }
-        
-        book.setScience(cursor.getInt(cursor.getColumnIndex(COLUMN_IS_SCIENCE)) == 1);
-        book.setNovel(cursor.getInt(cursor.getColumnIndex(COLUMN_IS_NOVEL)) == 1);
-        book.setChildren(cursor.getInt(cursor.getColumnIndex(COLUMN_IS_CHILDREN)) == 1);
-        
-        return book;
     }
 }
@@ -0,0 +1,51 @@
+package com.example.bookmanagement.database;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.TimeZone;
+
+// Publish dates are stored as days since 1970-01-01 (LocalDate.toEpochDay) in an
+// INTEGER column. Dates on Book are local midnight, so conversion uses the device zone.
+public final class EpochDays {
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private EpochDays() {
+    }
+
+    public static int fromDate(Date date) {
+        return (int) date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    public static Date toDate(long epochDay) {
+        Instant instant = LocalDate.ofEpochDay(epochDay).atStartOfDay(ZoneId.systemDefault()).toInstant();
+        return new Date(instant.toEpochMilli());
+    }
+
+    // Local midnight of the day as epoch millis, without allocating. The zone is passed in
+    // because TimeZone.getDefault() returns a new copy on every call.
+    // Same as toDate except on days where a DST change skips midnight itself.
+    public static long toMillis(long epochDay, TimeZone zone) {
+        long localMillis = epochDay * MILLIS_PER_DAY;
+        long utcGuess = localMillis - zone.getRawOffset();
+        return localMillis - zone.getOffset(utcGuess);
+    }
+
+    // Local day of an instant, without allocating; the inverse of toMillis
+    public static long fromMillis(long millis, TimeZone zone) {
+        return Math.floorDiv(millis + zone.getOffset(millis), MILLIS_PER_DAY);
+    }
+
+    public static int firstDayOfYear(int year) {
+        return (int) LocalDate.of(year, 1, 1).toEpochDay();
+    }
+
+    public static int lastDayOfYear(int year) {
+        return (int) LocalDate.of(year, 12, 31).toEpochDay();
+    }
+
+    public static int year(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).getYear();
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.bookmanagement.database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+// Single-writer queue with group commit. Any thread may call submit(); the write is queued
+// and whichever caller gets the lock first runs everything queued so far in one
+// transaction, so N concurrent edits cost one commit (one WAL sync) instead of N.
+// submit() returns once the write is committed, or rethrows what it threw.
+// Writes run in queue order and so does each committed() callback, after the commit
+// and still under the lock, so caches updated there see writes in the same order.
+public class GroupCommitWriter {
+    public interface Write {
+        // Runs inside the batch transaction; a failure only fails this write
+        long apply();
+
+        default void committed(long result) {
+        }
+    }
+
+    // The transaction around one batch
+    public interface Transaction {
+        void begin();
+
+        void markSuccessful();
+
+        void end();
+    }
+
+    // Upper bound on writes per transaction, so one batch does not hold the lock for long
+    static final int MAX_BATCH_SIZE = 256;
+
+    private static final class Pending {
+        final Write write;
+        long result;
+        RuntimeException error;
+        boolean done;
+
+        Pending(Write write) {
+            this.write = write;
+        }
+    }
+
+    private final Object lock;
+    private final Transaction transaction;
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final List<Pending> batch = new ArrayList<>(MAX_BATCH_SIZE);
+    // Guarded by lock
+    private long writeCount;
+    private long commitCount;
+
+    // lock is also held by other writers of the same database, such as bulk imports
+    public GroupCommitWriter(Object lock, Transaction transaction) {
+        this.lock = lock;
+        this.transaction = transaction;
+    }
+
+    public long submit(Write write) {
+        Pending pending = new Pending(write);
+        queue.add(pending);
+        synchronized (lock) {
+            // An earlier leader may already have committed this write along with its own
+            while (!pending.done) {
+                commitBatch();
+            }
+        }
+        if (pending.error != null) {
+            throw pending.error;
+        }
+        return pending.result;
+    }
+
+    public long getWriteCount() {
+        synchronized (lock) {
+            return writeCount;
+        }
+    }
+
+    public long getCommitCount() {
+        synchronized (lock) {
+            return commitCount;
+        }
+    }
+
+    private void commitBatch() {
+        Pending pending;
+        while (batch.size() < MAX_BATCH_SIZE && (pending = queue.poll()) != null) {
+            batch.add(pending);
+        }
+
+        try {
+            transaction.begin();
+            try {
+                for (Pending p : batch) {
+                    try {
+                        p.result = p.write.apply();
+                    } catch (RuntimeException e) {
+                        p.error = e;
+                    }
+                }
+                transaction.markSuccessful();
+            } finally {
+                transaction.end();
+            }
+            commitCount++;
+        } catch (RuntimeException e) {
+            // Nothing in the batch was committed
+            for (Pending p : batch) {
+                if (p.error == null) {
+                    p.error = e;
+                }
+            }
+        }
+
+        for (Pending p : batch) {
+            if (p.error == null) {
+                p.write.committed(p.result);
+            }
+            p.done = true;
+        }
+        writeCount += batch.size();
+        batch.clear();
+    }
+}
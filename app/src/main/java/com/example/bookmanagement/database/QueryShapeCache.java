@@ -0,0 +1,57 @@
+package com.example.bookmanagement.database;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Least-recently-used map from BookQuery shape to its canonical SQL, so a repeated search
+// neither rebuilds the string nor hands SQLite a new text to parse and plan.
+// SQLite keeps the compiled statements themselves, keyed by SQL, in each connection's
+// statement cache; keeping the number of shapes below that cache's size keeps them there.
+public class QueryShapeCache {
+    private final int maxSize;
+    private final LinkedHashMap<Integer, String> sqlByShape;
+    private long hitCount;
+    private long missCount;
+
+    public QueryShapeCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+        this.sqlByShape = new LinkedHashMap<Integer, String>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                return size() > QueryShapeCache.this.maxSize;
+            }
+        };
+    }
+
+    public synchronized String sqlFor(BookQuery query) {
+        int shape = query.shape();
+        String sql = sqlByShape.get(shape);
+        if (sql != null) {
+            hitCount++;
+            return sql;
+        }
+        missCount++;
+        sql = query.toSql();
+        sqlByShape.put(shape, sql);
+        return sql;
+    }
+
+    public synchronized int size() {
+        return sqlByShape.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+}
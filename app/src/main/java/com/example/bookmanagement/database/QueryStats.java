@@ -0,0 +1,169 @@
+package com.example.bookmanagement.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Call counts, rows and latency per data source operation, plus a slow-query hook.
+// Operations are registered once up front; recording is lock-free (LongAdder counters and a
+// LatencyHistogram), so it can stay on in release builds. dump() renders one line per
+// operation with p50/p99, for logs or a debug screen.
+public class QueryStats {
+    public static final long DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS = 100;
+    private static final Object[] NO_ARGS = new Object[0];
+
+    public interface SlowQueryListener {
+        // Called on the querying thread; args are the bound arguments of the call
+        void onSlowQuery(Operation operation, long nanos, long rows, Object[] args);
+    }
+
+    public static final class Operation {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        // Rows returned, or written for writes
+        public long getRows() {
+            return rows.sum();
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+    }
+
+    private final List<Operation> operations = new ArrayList<>();
+    private volatile long slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SLOW_QUERY_THRESHOLD_MILLIS);
+    private volatile SlowQueryListener slowQueryListener;
+
+    public synchronized Operation register(String name) {
+        Operation operation = new Operation(name);
+        operations.add(operation);
+        return operation;
+    }
+
+    public synchronized List<Operation> getOperations() {
+        return Collections.unmodifiableList(new ArrayList<>(operations));
+    }
+
+    public void setSlowQueryThresholdMillis(long millis) {
+        slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public long getSlowQueryThresholdMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos);
+    }
+
+    public void setSlowQueryListener(SlowQueryListener listener) {
+        slowQueryListener = listener;
+    }
+
+    // startNanos is System.nanoTime() taken when the operation began. There is one overload
+    // per shape of bound arguments, and the argument array for the slow-query listener is
+    // built only for a slow call, so a fast call allocates nothing.
+    public void record(Operation operation, long startNanos, long rows) {
+        long nanos = add(operation, startNanos, rows);
+        if (isSlow(nanos)) {
+            reportSlow(operation, nanos, rows, NO_ARGS);
+        }
+    }
+
+    public void record(Operation operation, long startNanos, long rows, long arg) {
+        long nanos = add(operation, startNanos, rows);
+        if (isSlow(nanos)) {
+            reportSlow(operation, nanos, rows, new Object[]{arg});
+        }
+    }
+
+    public void record(Operation operation, long startNanos, long rows, long arg1, long arg2, long arg3) {
+        long nanos = add(operation, startNanos, rows);
+        if (isSlow(nanos)) {
+            reportSlow(operation, nanos, rows, new Object[]{arg1, arg2, arg3});
+        }
+    }
+
+    public void record(Operation operation, long startNanos, long rows, Object arg) {
+        long nanos = add(operation, startNanos, rows);
+        if (isSlow(nanos)) {
+            reportSlow(operation, nanos, rows, new Object[]{arg});
+        }
+    }
+
+    // For arguments that are already in an array, such as a query's bind arguments
+    public void record(Operation operation, long startNanos, long rows, Object[] args) {
+        long nanos = add(operation, startNanos, rows);
+        if (isSlow(nanos)) {
+            reportSlow(operation, nanos, rows, args);
+        }
+    }
+
+    // Counts the call and returns its latency
+    private static long add(Operation operation, long startNanos, long rows) {
+        long nanos = System.nanoTime() - startNanos;
+        operation.count.increment();
+        operation.rows.add(rows);
+        operation.latency.record(nanos);
+        return nanos;
+    }
+
+    private boolean isSlow(long nanos) {
+        return nanos >= slowQueryThresholdNanos && slowQueryListener != null;
+    }
+
+    private void reportSlow(Operation operation, long nanos, long rows, Object[] args) {
+        SlowQueryListener listener = slowQueryListener;
+        if (listener != null) {
+            listener.onSlowQuery(operation, nanos, rows, args);
+        }
+    }
+
+    public synchronized void reset() {
+        for (Operation operation : operations) {
+            operation.count.reset();
+            operation.rows.reset();
+            operation.latency.reset();
+        }
+    }
+
+    // One line per operation that has been called
+    public synchronized String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (Operation operation : operations) {
+            long count = operation.getCount();
+            if (count == 0) {
+                continue;
+            }
+            LatencyHistogram latency = operation.latency;
+            builder.append(String.format(Locale.US, "%s: count=%d rows=%d p50=%.3fms p99=%.3fms max=%.3fms%n",
+                    operation.name, count, operation.getRows(), millis(latency.getPercentileNanos(50)),
+                    millis(latency.getPercentileNanos(99)), millis(latency.getMaxNanos())));
+        }
+        return builder.toString();
+    }
+
+    // The bound arguments of a slow query in log form
+    public static String formatArgs(Object[] args) {
+        return Arrays.deepToString(args);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
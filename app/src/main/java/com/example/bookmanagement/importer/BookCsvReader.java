@@ -0,0 +1,185 @@
+package com.example.bookmanagement.importer;
+
+import com.example.bookmanagement.model.Book;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+// Streams books out of a CSV file one record at a time.
+// The first record is a header naming the columns: title, author and publish_date
+// (yyyy-MM-dd) are required, is_science / is_novel / is_children are optional
+// (1/0 or true/false). Quoted fields may contain commas, doubled quotes and newlines.
+public class BookCsvReader implements Iterator<Book>, Closeable {
+    private final Reader reader;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+    private final List<String> record = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private int pushedBack = -1;
+    private int line = 1;
+    private int recordLine;
+
+    private final int titleColumn;
+    private final int authorColumn;
+    private final int publishDateColumn;
+    private final int scienceColumn;
+    private final int novelColumn;
+    private final int childrenColumn;
+
+    private Book next;
+    private boolean finished;
+
+    public BookCsvReader(Reader reader) throws IOException {
+        this.reader = reader;
+        dateFormat.setLenient(false);
+        if (!readRecord()) {
+            throw new IOException("CSV file is empty");
+        }
+
+        List<String> header = new ArrayList<>();
+        for (String name : record) {
+            header.add(name.trim().toLowerCase(Locale.US));
+        }
+        titleColumn = requiredColumn(header, "title");
+        authorColumn = requiredColumn(header, "author");
+        publishDateColumn = requiredColumn(header, "publish_date");
+        scienceColumn = header.indexOf("is_science");
+        novelColumn = header.indexOf("is_novel");
+        childrenColumn = header.indexOf("is_children");
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !finished) {
+            try {
+                next = readBook();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            finished = next == null;
+        }
+        return next != null;
+    }
+
+    @Override
+    public Book next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Book book = next;
+        next = null;
+        return book;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Book readBook() throws IOException {
+        while (readRecord()) {
+            // Skip blank lines
+            if (record.size() == 1 && record.get(0).trim().isEmpty()) {
+                continue;
+            }
+
+            Book book = new Book();
+            book.setTitle(column(titleColumn));
+            book.setAuthor(column(authorColumn));
+            try {
+                book.setPublishDate(dateFormat.parse(column(publishDateColumn)));
+            } catch (ParseException e) {
+                throw new IOException("Line " + recordLine + ": invalid publish_date \""
+                        + column(publishDateColumn) + "\"", e);
+            }
+            book.setScience(flag(scienceColumn));
+            book.setNovel(flag(novelColumn));
+            book.setChildren(flag(childrenColumn));
+            return book;
+        }
+        return null;
+    }
+
+    private String column(int index) {
+        return index >= 0 && index < record.size() ? record.get(index).trim() : "";
+    }
+
+    private boolean flag(int index) {
+        String value = column(index);
+        return value.equals("1") || value.equalsIgnoreCase("true");
+    }
+
+    // Read the next record into `record`; false at end of input
+    private boolean readRecord() throws IOException {
+        record.clear();
+        field.setLength(0);
+        recordLine = line;
+        boolean inQuotes = false;
+        boolean sawAnything = false;
+
+        while (true) {
+            int c = read();
+            if (c == -1) {
+                if (!sawAnything) {
+                    return false;
+                }
+                record.add(field.toString());
+                return true;
+            }
+            sawAnything = true;
+
+            if (inQuotes) {
+                if (c == '"') {
+                    int following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                        pushedBack = following;
+                    }
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                inQuotes = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                line++;
+                record.add(field.toString());
+                return true;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushedBack != -1) {
+            int c = pushedBack;
+            pushedBack = -1;
+            return c;
+        }
+        return reader.read();
+    }
+
+    private static int requiredColumn(List<String> header, String name) throws IOException {
+        int index = header.indexOf(name);
+        if (index < 0) {
+            throw new IOException("CSV header has no \"" + name + "\" column");
+        }
+        return index;
+    }
+}
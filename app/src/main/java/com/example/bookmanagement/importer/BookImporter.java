@@ -0,0 +1,67 @@
+package com.example.bookmanagement.importer;
+
+import com.example.bookmanagement.database.BookDataSource;
+import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.snapshot.BookSnapshotReader;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+// Streams a supplier catalog (CSV or JSON) or a .bks snapshot into the books table through
+// BookDataSource.addBooks, so neither the file nor the parsed books are held in memory.
+// Books get new ids, as with any import.
+public class BookImporter {
+    private final BookDataSource dataSource;
+
+    public BookImporter(BookDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    // Picks the format from the file extension (.json, .bks, anything else is read as CSV)
+    public int importFile(File file, BookDataSource.ImportProgressListener progressListener) throws IOException {
+        if (file.getName().toLowerCase(Locale.US).endsWith(".bks")) {
+            return importSnapshot(file, progressListener);
+        }
+        try (Reader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(file), StandardCharsets.UTF_8))) {
+            if (file.getName().toLowerCase(Locale.US).endsWith(".json")) {
+                return importJson(reader, progressListener);
+            }
+            return importCsv(reader, progressListener);
+        }
+    }
+
+    public int importCsv(Reader reader, BookDataSource.ImportProgressListener progressListener) throws IOException {
+        try (BookCsvReader books = new BookCsvReader(reader)) {
+            return addAll(() -> books, progressListener);
+        }
+    }
+
+    public int importJson(Reader reader, BookDataSource.ImportProgressListener progressListener) throws IOException {
+        try (BookJsonReader books = new BookJsonReader(reader)) {
+            return addAll(() -> books, progressListener);
+        }
+    }
+
+    public int importSnapshot(File file, BookDataSource.ImportProgressListener progressListener) throws IOException {
+        try (BookSnapshotReader books = BookSnapshotReader.open(file)) {
+            return addAll(() -> books, progressListener);
+        }
+    }
+
+    private int addAll(Iterable<Book> books, BookDataSource.ImportProgressListener progressListener) throws IOException {
+        try {
+            return dataSource.addBooks(books, progressListener);
+        } catch (UncheckedIOException e) {
+            // Parse errors surface from the iterator while the rows are being written
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.bookmanagement.importer;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.example.bookmanagement.model.Book;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+
+// Streams books out of a JSON array of objects with the same fields as the CSV
+// format: title, author, publish_date (yyyy-MM-dd), is_science, is_novel, is_children.
+// Only the object being read is held in memory.
+public class BookJsonReader implements Iterator<Book>, Closeable {
+    private final JsonReader reader;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+    private int index;
+
+    public BookJsonReader(Reader reader) throws IOException {
+        this.reader = new JsonReader(reader);
+        dateFormat.setLenient(false);
+        this.reader.beginArray();
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            return reader.hasNext();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Book next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        try {
+            return readBook();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private Book readBook() throws IOException {
+        Book book = new Book();
+        String publishDate = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "title":
+                    book.setTitle(reader.nextString());
+                    break;
+                case "author":
+                    book.setAuthor(reader.nextString());
+                    break;
+                case "publish_date":
+                    publishDate = reader.nextString();
+                    break;
+                case "is_science":
+                    book.setScience(readFlag());
+                    break;
+                case "is_novel":
+                    book.setNovel(readFlag());
+                    break;
+                case "is_children":
+                    book.setChildren(readFlag());
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        try {
+            book.setPublishDate(dateFormat.parse(publishDate == null ? "" : publishDate));
+        } catch (ParseException e) {
+            throw new IOException("Book " + index + ": invalid publish_date \"" + publishDate + "\"", e);
+        }
+        index++;
+        return book;
+    }
+
+    private boolean readFlag() throws IOException {
+        if (reader.peek() == JsonToken.BOOLEAN) {
+            return reader.nextBoolean();
+        }
+        return reader.nextInt() != 0;
+    }
+}
@@ -2,15 +2,17 @@ package com.example.bookmanagement.model;
 
 import java.io.Serializable;
 import java.util.Date;
+import java.util.Objects;
 
 public class Book implements Serializable {
     private int id;
     private String title;
     private String author;
     private Date publishDate;
-    private boolean isScience;
-    private boolean isNovel;
-    private boolean isChildren;
+    // Bitmask of Category.mask() values
+    private int categories;
+    // getFormattedId(), built on first use and dropped by setId()
+    private transient String formattedId;
 
     public Book() {
     }
@@ -20,9 +22,21 @@ public class Book implements Serializable {
         this.title = title;
         this.author = author;
         this.publishDate = publishDate;
-        this.isScience = isScience;
-        this.isNovel = isNovel;
-        this.isChildren = isChildren;
+        this.categories = Category.maskOf(isScience, isNovel, isChildren);
+    }
+
+    public Book(int id, String title, String author, Date publishDate, int categories) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.publishDate = publishDate;
+        this.categories = categories;
+    }
+
+    // Copy to edit, so the list still holds the old values to diff against
+    public Book(Book other) {
+        this(other.id, other.title, other.author,
+                other.publishDate != null ? new Date(other.publishDate.getTime()) : null, other.categories);
     }
 
     public int getId() {
@@ -31,6 +45,7 @@ public class Book implements Serializable {
 
     public void setId(int id) {
         this.id = id;
+        formattedId = null;
     }
 
     public String getTitle() {
@@ -57,54 +72,73 @@ public class Book implements Serializable {
         this.publishDate = publishDate;
     }
 
+    public int getCategories() {
+        return categories;
+    }
+
+    public void setCategories(int categories) {
+        this.categories = categories;
+    }
+
+    public boolean hasCategory(Category category) {
+        return category.isIn(categories);
+    }
+
+    public void setCategory(Category category, boolean enabled) {
+        if (enabled) {
+            categories |= category.mask();
+        } else {
+            categories &= ~category.mask();
+        }
+    }
+
     public boolean isScience() {
-        return isScience;
+        return hasCategory(Category.SCIENCE);
     }
 
     public void setScience(boolean science) {
-        isScience = science;
+        setCategory(Category.SCIENCE, science);
     }
 
     public boolean isNovel() {
-        return isNovel;
+        return hasCategory(Category.NOVEL);
     }
 
     public void setNovel(boolean novel) {
-        isNovel = novel;
+        setCategory(Category.NOVEL, novel);
     }
 
     public boolean isChildren() {
-        return isChildren;
+        return hasCategory(Category.CHILDREN);
     }
 
     public void setChildren(boolean children) {
-        isChildren = children;
+        setCategory(Category.CHILDREN, children);
     }
 
     public String getFormattedId() {
-        return String.format("%03d", id);
+        String formatted = formattedId;
+        if (formatted == null) {
+            formatted = String.format("%03d", id);
+            formattedId = formatted;
+        }
+        return formatted;
     }
     
+    // Shared string per category combination, so nothing is built per call
     public String getCategoriesString() {
-        StringBuilder categories = new StringBuilder();
-        if (isScience) {
-            categories.append("Khoa học, ");
-        }
-        if (isNovel) {
-            categories.append("Tiểu thuyết, ");
-        }
-        if (isChildren) {
-            categories.append("Thiếu nhi, ");
-        }
-        
-        String result = categories.toString();
-        if (result.endsWith(", ")) {
-            result = result.substring(0, result.length() - 2);
-        }
-        return result;
+        return Category.labelsOf(categories);
     }
     
+    // Same values in every field shown for a book, ignoring the id
+    public boolean hasSameContent(Book other) {
+        return Objects.equals(title, other.title)
+                && Objects.equals(author, other.author)
+                && Objects.equals(publishDate, other.publishDate)
+                && categories == other.categories;
+    }
+
     public boolean hasAtLeastOneCategory() {
-        return isScience || isNovel || isChildren;
+        return categories != 0;
     }
 }
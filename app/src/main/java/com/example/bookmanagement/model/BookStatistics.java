@@ -0,0 +1,50 @@
+package com.example.bookmanagement.model;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+// Totals for one statistics filter, computed with GROUP BY instead of loading the books
+public class BookStatistics {
+    private final SortedMap<Integer, Integer> countsByYear = new TreeMap<>();
+    private final Map<Category, Integer> countsByCategory = new EnumMap<>(Category.class);
+    // Most prolific authors first
+    private final Map<String, Integer> countsByAuthor = new LinkedHashMap<>();
+    private int totalCount;
+
+    // Add the number of books published in `year` whose category mask is exactly `categories`
+    public void addCount(int year, int categories, int count) {
+        Integer yearCount = countsByYear.get(year);
+        countsByYear.put(year, (yearCount != null ? yearCount : 0) + count);
+        for (Category category : Category.values()) {
+            if (category.isIn(categories)) {
+                countsByCategory.put(category, getCategoryCount(category) + count);
+            }
+        }
+        totalCount += count;
+    }
+
+    public void addAuthorCount(String author, int count) {
+        countsByAuthor.put(author, count);
+    }
+
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public SortedMap<Integer, Integer> getCountsByYear() {
+        return Collections.unmodifiableSortedMap(countsByYear);
+    }
+
+    public int getCategoryCount(Category category) {
+        Integer count = countsByCategory.get(category);
+        return count != null ? count : 0;
+    }
+
+    public Map<String, Integer> getCountsByAuthor() {
+        return Collections.unmodifiableMap(countsByAuthor);
+    }
+}
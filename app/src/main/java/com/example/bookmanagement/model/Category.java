@@ -0,0 +1,72 @@
+package com.example.bookmanagement.model;
+
+// Book categories, stored together as one bitmask (Book.getCategories(), books.categories).
+// Each category owns the bit of its ordinal, so new ones must be appended at the end.
+public enum Category {
+    SCIENCE("Khoa học"),
+    NOVEL("Tiểu thuyết"),
+    CHILDREN("Thiếu nhi");
+
+    private static final Category[] VALUES = values();
+    // "Khoa học, Thiếu nhi" and so on, indexed by mask; every combination is built once
+    private static final String[] LABELS_BY_MASK = buildLabels();
+
+    private final String label;
+
+    Category(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    public boolean isIn(int categories) {
+        return (categories & mask()) != 0;
+    }
+
+    // Mask with every known category set
+    public static int allMask() {
+        return (1 << VALUES.length) - 1;
+    }
+
+    // Labels of the categories in the mask, in declaration order, joined by ", "
+    public static String labelsOf(int categories) {
+        return LABELS_BY_MASK[categories & allMask()];
+    }
+
+    private static String[] buildLabels() {
+        String[] labels = new String[1 << VALUES.length];
+        for (int mask = 0; mask < labels.length; mask++) {
+            StringBuilder builder = new StringBuilder();
+            for (Category category : VALUES) {
+                if (category.isIn(mask)) {
+                    if (builder.length() > 0) {
+                        builder.append(", ");
+                    }
+                    builder.append(category.label);
+                }
+            }
+            labels[mask] = builder.toString().intern();
+        }
+        return labels;
+    }
+
+    public static int maskOf(boolean isScience, boolean isNovel, boolean isChildren) {
+        int mask = 0;
+        if (isScience) {
+            mask |= SCIENCE.mask();
+        }
+        if (isNovel) {
+            mask |= NOVEL.mask();
+        }
+        if (isChildren) {
+            mask |= CHILDREN.mask();
+        }
+        return mask;
+    }
+}
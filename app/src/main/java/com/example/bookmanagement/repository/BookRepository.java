@@ -0,0 +1,282 @@
+package com.example.bookmanagement.repository;
+
+import android.content.Context;
+
+import com.example.bookmanagement.database.BookChangeNotifier;
+import com.example.bookmanagement.database.BookDataSource;
+import com.example.bookmanagement.database.BookQuery;
+import com.example.bookmanagement.database.CursorBookList;
+import com.example.bookmanagement.database.DatabaseHelper;
+import com.example.bookmanagement.importer.BookImporter;
+import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.model.BookStatistics;
+import com.example.bookmanagement.snapshot.BookSnapshotWriter;
+import com.example.bookmanagement.snapshot.FirstScreenSnapshot;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+// Runs BookDataSource calls on a background executor and delivers the results on the
+// callback executor (the main thread in the app). One instance belongs to one screen:
+// cancelAll() from onDestroy() cancels pending reads and drops every later callback.
+// Writes that were already submitted still run so no user edit is lost.
+public class BookRepository {
+    public interface Callback<T> {
+        void onResult(T result);
+
+        // Failures surface on the callback thread, like the old synchronous calls did
+        default void onError(Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private final BookDataSource dataSource;
+    private final Executor readExecutor;
+    private final Executor writeExecutor;
+    private final Executor callbackExecutor;
+    private final Set<Task<?>> pendingTasks = ConcurrentHashMap.newKeySet();
+    private final List<BookChangeNotifier.Listener> changeListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled;
+
+    public BookRepository(BookDataSource dataSource, Executor readExecutor, Executor writeExecutor,
+                          Executor callbackExecutor) {
+        this.dataSource = dataSource;
+        this.readExecutor = readExecutor;
+        this.writeExecutor = writeExecutor;
+        this.callbackExecutor = callbackExecutor;
+    }
+
+    public static BookRepository create(Context context) {
+        return new BookRepository(DatabaseHelper.getInstance(context),
+                DatabaseExecutors.read(), DatabaseExecutors.write(), new MainThreadExecutor());
+    }
+
+    public Future<Book> getBook(int id, Callback<Book> callback) {
+        return read(() -> dataSource.getBook(id), callback);
+    }
+
+    public Future<List<Book>> getAllBooks(Callback<List<Book>> callback) {
+        return read(dataSource::getAllBooks, callback);
+    }
+
+    public Future<List<Book>> getBooksByYearRangeAndCategories(int startYear, int endYear, int categoryMask,
+                                                               Callback<List<Book>> callback) {
+        return read(() -> dataSource.getBooksByYearRangeAndCategories(startYear, endYear, categoryMask), callback);
+    }
+
+    public Future<List<Book>> getBooksByYearRangeAndCategories(int startYear, int endYear, int categoryMask,
+                                                               Book after, int limit,
+                                                               Callback<List<Book>> callback) {
+        return read(() -> dataSource.getBooksByYearRangeAndCategories(
+                startYear, endYear, categoryMask, after, limit), callback);
+    }
+
+    public Future<List<Book>> queryBooks(BookQuery query, Callback<List<Book>> callback) {
+        return read(() -> dataSource.queryBooks(query), callback);
+    }
+
+    // The callback owns the list and must close it; a list nobody receives is closed here
+    public Future<CursorBookList> openBooks(BookQuery query, Callback<CursorBookList> callback) {
+        return read(() -> dataSource.openBooks(query), callback);
+    }
+
+    // Rows of an open list not decoded yet are read on the read executor from now on, so the
+    // list can be bound on the callback thread; the listener hears of them there
+    public void decodeInBackground(CursorBookList books, CursorBookList.Listener listener) {
+        books.decodeOn(readExecutor, callbackExecutor, listener);
+    }
+
+    public Future<List<Book>> searchBooks(String query, int limit, Callback<List<Book>> callback) {
+        return read(() -> dataSource.searchBooks(query, limit), callback);
+    }
+
+    public Future<BookStatistics> getStatistics(int startYear, int endYear, int categoryMask, int authorLimit,
+                                                Callback<BookStatistics> callback) {
+        return read(() -> dataSource.getStatistics(startYear, endYear, categoryMask, authorLimit), callback);
+    }
+
+    // The callback receives the id the insert assigned
+    public Future<Long> addBook(Book book, Callback<Long> callback) {
+        return write(() -> dataSource.addBook(book), callback);
+    }
+
+    // Stream a CSV or JSON catalog into the database; progress is reported on the callback thread
+    public Future<Integer> importBooks(File file, BookDataSource.ImportProgressListener progressListener,
+                                       Callback<Integer> callback) {
+        BookImporter importer = new BookImporter(dataSource);
+        return write(() -> importer.importFile(file, imported -> {
+            if (progressListener != null && !cancelled) {
+                callbackExecutor.execute(() -> progressListener.onProgress(imported));
+            }
+        }), callback);
+    }
+
+    // Write the whole catalog to a .bks snapshot; the callback receives the book count
+    public Future<Long> exportSnapshot(File file, Callback<Long> callback) {
+        return read(() -> BookSnapshotWriter.export(dataSource, file), callback);
+    }
+
+    // Save the rows of the first screen for the next launch; queued behind the writes so
+    // saves land in order
+    public Future<Void> saveFirstScreen(File file, List<Book> books, Callback<Void> callback) {
+        return write(() -> {
+            FirstScreenSnapshot.write(file, books);
+            return null;
+        }, callback);
+    }
+
+    public Future<Integer> updateBook(Book book, Callback<Integer> callback) {
+        return write(() -> dataSource.updateBook(book), callback);
+    }
+
+    public Future<Void> deleteBook(int id, Callback<Void> callback) {
+        return write(() -> {
+            dataSource.deleteBook(id);
+            return null;
+        }, callback);
+    }
+
+    // Deliver every committed change on the callback thread until cancelAll()
+    public void observeChanges(BookChangeNotifier.Listener listener) {
+        BookChangeNotifier.Listener forwarder = event -> {
+            if (!cancelled) {
+                callbackExecutor.execute(() -> {
+                    if (!cancelled) {
+                        listener.onBookChanged(event);
+                    }
+                });
+            }
+        };
+        changeListeners.add(forwarder);
+        dataSource.getChangeNotifier().addListener(forwarder);
+    }
+
+    // Version of the newest committed change, to compare with the one a screen last showed
+    public long getChangeVersion() {
+        return dataSource.getChangeNotifier().getVersion();
+    }
+
+    // Cancel pending reads and stop delivering callbacks; call from onDestroy()
+    public void cancelAll() {
+        cancelled = true;
+        for (BookChangeNotifier.Listener listener : changeListeners) {
+            dataSource.getChangeNotifier().removeListener(listener);
+        }
+        changeListeners.clear();
+        for (Task<?> task : pendingTasks) {
+            if (task.cancellable) {
+                task.cancel(true);
+            }
+        }
+        pendingTasks.clear();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    private <T> Future<T> read(Callable<T> work, Callback<T> callback) {
+        return submit(readExecutor, work, callback, true);
+    }
+
+    // Writes go to the single writer thread so they keep their order
+    private <T> Future<T> write(Callable<T> work, Callback<T> callback) {
+        return submit(writeExecutor, work, callback, false);
+    }
+
+    private <T> Future<T> submit(Executor executor, Callable<T> work, Callback<T> callback, boolean cancellable) {
+        Task<T> task = new Task<>(work, callback, cancellable);
+        if (cancelled && cancellable) {
+            task.cancel(false);
+            return task;
+        }
+        pendingTasks.add(task);
+        executor.execute(task);
+        return task;
+    }
+
+    private final class Task<T> extends FutureTask<T> {
+        private final Callback<T> callback;
+        private final boolean cancellable;
+
+        Task(Callable<T> work, Callback<T> callback, boolean cancellable) {
+            super(work);
+            this.callback = callback;
+            this.cancellable = cancellable;
+        }
+
+        @Override
+        protected void set(T result) {
+            super.set(result);
+            // Cancelled while running: the result is dropped, so release what it holds
+            if (isCancelled()) {
+                discard(result);
+            }
+        }
+
+        @Override
+        protected void done() {
+            pendingTasks.remove(this);
+            if (isCancelled()) {
+                return;
+            }
+            if (callback == null || cancelled) {
+                discardResult();
+                return;
+            }
+            callbackExecutor.execute(this::deliver);
+        }
+
+        private void deliver() {
+            // The screen may have gone away while the callback was queued
+            if (isCancelled()) {
+                return;
+            }
+            if (cancelled) {
+                discardResult();
+                return;
+            }
+            T result;
+            try {
+                result = get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                callback.onError(cause instanceof Exception ? (Exception) cause : new RuntimeException(cause));
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            callback.onResult(result);
+        }
+
+        private void discardResult() {
+            try {
+                discard(get());
+            } catch (ExecutionException | InterruptedException ignored) {
+                // Nothing was produced, so nothing to release
+            }
+        }
+    }
+
+    // Results such as an open CursorBookList hold a cursor until closed
+    private static void discard(Object result) {
+        if (result instanceof Closeable) {
+            try {
+                ((Closeable) result).close();
+            } catch (IOException ignored) {
+                // The result is being thrown away anyway
+            }
+        }
+    }
+}
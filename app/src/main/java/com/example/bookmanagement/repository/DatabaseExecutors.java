@@ -0,0 +1,37 @@
+package com.example.bookmanagement.repository;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Process-wide background threads for database work, shared by every BookRepository
+public final class DatabaseExecutors {
+    // With write-ahead logging readers run alongside the writer, so a couple of
+    // threads are enough to keep paging and searches from queueing behind each other
+    private static final int READ_THREADS = 2;
+
+    private static final ExecutorService READ = Executors.newFixedThreadPool(READ_THREADS, threadFactory("book-db-read"));
+    // A single writer keeps writes in submission order
+    private static final ExecutorService WRITE = Executors.newSingleThreadExecutor(threadFactory("book-db-write"));
+
+    private DatabaseExecutors() {
+    }
+
+    public static ExecutorService read() {
+        return READ;
+    }
+
+    public static ExecutorService write() {
+        return WRITE;
+    }
+
+    private static ThreadFactory threadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.bookmanagement.snapshot;
+
+// Layout of a .bks catalog snapshot, version 1. All integers are unsigned LEB128 varints;
+// signed deltas are zigzag-encoded first.
+//
+//   header: magic "BKS1" (4 bytes, big-endian int), varint format version
+//   blocks: up to BLOCK_SIZE books each, stored column by column:
+//     varint row count (0 ends the file)
+//     varint count of new authors, then each as varint UTF-8 length + bytes; they take the
+//       next dictionary numbers, starting at 1, in the order written
+//     ids:        zigzag delta from the previous id (the first from 0)
+//     titles:     0 for null, else UTF-8 length + 1 followed by the bytes
+//     authors:    0 for null, else dictionary number
+//     dates:      0 for null, else zigzag delta in epoch days from the previous date + 1
+//     categories: one byte per book, the Category bitmask
+//
+// Authors repeat a lot, so each is written once; ids and dates are mostly small steps
+// when exported in id order.
+final class BookSnapshotFormat {
+    static final int MAGIC = 0x424B5331;
+    static final int VERSION = 1;
+    static final int BLOCK_SIZE = 4096;
+
+    private BookSnapshotFormat() {
+    }
+
+    static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
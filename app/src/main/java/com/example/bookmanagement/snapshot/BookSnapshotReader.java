@@ -0,0 +1,192 @@
+package com.example.bookmanagement.snapshot;
+
+import com.example.bookmanagement.database.EpochDays;
+import com.example.bookmanagement.model.Book;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TimeZone;
+
+// Reads a snapshot written by BookSnapshotWriter, one block at a time. open() maps the
+// file into memory, so reading costs no copies through a stream buffer and the OS pages
+// it in as blocks are decoded. A damaged file fails with an UncheckedIOException from
+// the iterator, like the CSV and JSON readers.
+public class BookSnapshotReader implements Iterator<Book>, Closeable {
+    private final TimeZone zone = TimeZone.getDefault();
+    private final List<String> authorDictionary = new ArrayList<>();
+    private ByteBuffer buffer;
+    private byte[] stringBytes = new byte[256];
+
+    private int[] ids = new int[0];
+    private String[] titles = new String[0];
+    private int[] authors = new int[0];
+    private boolean[] hasDate = new boolean[0];
+    private int[] dates = new int[0];
+    private byte[] categories = new byte[0];
+    private int blockSize;
+    private int blockPosition;
+
+    private int previousId;
+    private int previousDate;
+    private boolean finished;
+
+    public BookSnapshotReader(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        authorDictionary.add(null);
+        try {
+            if (buffer.getInt() != BookSnapshotFormat.MAGIC) {
+                throw new IOException("Not a book snapshot");
+            }
+            int version = readVarint();
+            if (version != BookSnapshotFormat.VERSION) {
+                throw new IOException("Unsupported book snapshot version " + version);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Book snapshot is truncated", e);
+        }
+    }
+
+    // Snapshots are limited to 2 GB, the most one mapping can cover
+    public static BookSnapshotReader open(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Book snapshot is larger than 2 GB");
+            }
+            // The mapping stays valid after the channel is closed
+            return new BookSnapshotReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (blockPosition < blockSize) {
+            return true;
+        }
+        if (finished) {
+            return false;
+        }
+        try {
+            readBlock();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new UncheckedIOException(new IOException("Book snapshot is truncated or damaged", e));
+        }
+        return blockPosition < blockSize;
+    }
+
+    @Override
+    public Book next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int row = blockPosition++;
+        Date publishDate = hasDate[row] ? new Date(EpochDays.toMillis(dates[row], zone)) : null;
+        Book book = new Book(ids[row], titles[row], authorDictionary.get(authors[row]), publishDate,
+                categories[row] & 0xFF);
+        titles[row] = null;
+        return book;
+    }
+
+    @Override
+    public void close() {
+        // A mapping cannot be released explicitly; dropping it lets the GC unmap it
+        buffer = null;
+        finished = true;
+        blockSize = 0;
+    }
+
+    private void readBlock() throws IOException {
+        if (buffer == null) {
+            throw new IOException("BookSnapshotReader is closed");
+        }
+        int count = readVarint();
+        if (count == 0) {
+            finished = true;
+            blockSize = 0;
+            return;
+        }
+        if (count > BookSnapshotFormat.BLOCK_SIZE) {
+            throw new IOException("Book snapshot block of " + count + " books");
+        }
+        ensureCapacity(count);
+
+        int newAuthors = readVarint();
+        for (int i = 0; i < newAuthors; i++) {
+            authorDictionary.add(readString(readVarint()));
+        }
+
+        for (int i = 0; i < count; i++) {
+            previousId += BookSnapshotFormat.unzigzag(readVarint());
+            ids[i] = previousId;
+        }
+        for (int i = 0; i < count; i++) {
+            int length = readVarint();
+            titles[i] = length == 0 ? null : readString(length - 1);
+        }
+        for (int i = 0; i < count; i++) {
+            int author = readVarint();
+            if (author >= authorDictionary.size()) {
+                throw new IOException("Unknown author " + author + " in book snapshot");
+            }
+            authors[i] = author;
+        }
+        for (int i = 0; i < count; i++) {
+            int date = readVarint();
+            hasDate[i] = date != 0;
+            if (hasDate[i]) {
+                previousDate += BookSnapshotFormat.unzigzag(date - 1);
+                dates[i] = previousDate;
+            }
+        }
+        buffer.get(categories, 0, count);
+
+        blockSize = count;
+        blockPosition = 0;
+    }
+
+    private void ensureCapacity(int count) {
+        if (ids.length >= count) {
+            return;
+        }
+        ids = new int[count];
+        titles = new String[count];
+        authors = new int[count];
+        hasDate = new boolean[count];
+        dates = new int[count];
+        categories = new byte[count];
+    }
+
+    private String readString(int length) {
+        if (stringBytes.length < length) {
+            stringBytes = new byte[Math.max(length, stringBytes.length * 2)];
+        }
+        buffer.get(stringBytes, 0, length);
+        return new String(stringBytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in book snapshot");
+    }
+}
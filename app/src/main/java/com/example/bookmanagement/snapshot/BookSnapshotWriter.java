@@ -0,0 +1,176 @@
+package com.example.bookmanagement.snapshot;
+
+import com.example.bookmanagement.database.BookDataSource;
+import com.example.bookmanagement.database.EpochDays;
+import com.example.bookmanagement.model.Book;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Streams books into the snapshot format described in BookSnapshotFormat. Only one block
+// of books is buffered, plus the author dictionary, so catalogs of any size can be
+// written. close() writes the last block and the end marker.
+public class BookSnapshotWriter implements Closeable {
+    private static final int BLOCK_SIZE = BookSnapshotFormat.BLOCK_SIZE;
+    // Books read from the data source per query while exporting
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
+    private final OutputStream out;
+    private final Map<String, Integer> authorNumbers = new HashMap<>();
+    private final List<String> newAuthors = new ArrayList<>();
+
+    private final int[] ids = new int[BLOCK_SIZE];
+    private final String[] titles = new String[BLOCK_SIZE];
+    private final int[] authors = new int[BLOCK_SIZE];
+    private final boolean[] hasDate = new boolean[BLOCK_SIZE];
+    private final int[] dates = new int[BLOCK_SIZE];
+    private final byte[] categories = new byte[BLOCK_SIZE];
+    private int blockSize;
+
+    private int previousId;
+    private int previousDate;
+    private long bookCount;
+    private boolean closed;
+
+    public BookSnapshotWriter(OutputStream out) throws IOException {
+        this.out = new BufferedOutputStream(out, 64 * 1024);
+        writeInt(BookSnapshotFormat.MAGIC);
+        writeVarint(BookSnapshotFormat.VERSION);
+    }
+
+    // Write every book of the data source to the file, in id order; returns the count
+    public static long export(BookDataSource dataSource, File file) throws IOException {
+        try (BookSnapshotWriter writer = new BookSnapshotWriter(new FileOutputStream(file))) {
+            int afterId = 0;
+            List<Book> page;
+            do {
+                page = dataSource.getBooksAfterId(afterId, EXPORT_PAGE_SIZE);
+                for (Book book : page) {
+                    writer.write(book);
+                }
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == EXPORT_PAGE_SIZE);
+            return writer.getBookCount();
+        }
+    }
+
+    public void write(Book book) throws IOException {
+        if (closed) {
+            throw new IOException("BookSnapshotWriter is closed");
+        }
+        int row = blockSize++;
+        ids[row] = book.getId();
+        titles[row] = book.getTitle();
+        authors[row] = authorNumber(book.getAuthor());
+        hasDate[row] = book.getPublishDate() != null;
+        dates[row] = hasDate[row] ? EpochDays.fromDate(book.getPublishDate()) : 0;
+        categories[row] = (byte) book.getCategories();
+        bookCount++;
+        if (blockSize == BLOCK_SIZE) {
+            writeBlock();
+        }
+    }
+
+    public long getBookCount() {
+        return bookCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (blockSize > 0) {
+                writeBlock();
+            }
+            writeVarint(0);
+            out.flush();
+        } finally {
+            out.close();
+        }
+    }
+
+    private int authorNumber(String author) {
+        if (author == null) {
+            return 0;
+        }
+        Integer number = authorNumbers.get(author);
+        if (number == null) {
+            number = authorNumbers.size() + 1;
+            authorNumbers.put(author, number);
+            newAuthors.add(author);
+        }
+        return number;
+    }
+
+    private void writeBlock() throws IOException {
+        int count = blockSize;
+        writeVarint(count);
+
+        writeVarint(newAuthors.size());
+        for (String author : newAuthors) {
+            writeString(author.getBytes(StandardCharsets.UTF_8), 0);
+        }
+        newAuthors.clear();
+
+        for (int i = 0; i < count; i++) {
+            writeVarint(BookSnapshotFormat.zigzag(ids[i] - previousId));
+            previousId = ids[i];
+        }
+        for (int i = 0; i < count; i++) {
+            if (titles[i] == null) {
+                writeVarint(0);
+            } else {
+                writeString(titles[i].getBytes(StandardCharsets.UTF_8), 1);
+            }
+            titles[i] = null;
+        }
+        for (int i = 0; i < count; i++) {
+            writeVarint(authors[i]);
+        }
+        for (int i = 0; i < count; i++) {
+            if (hasDate[i]) {
+                writeVarint(BookSnapshotFormat.zigzag(dates[i] - previousDate) + 1);
+                previousDate = dates[i];
+            } else {
+                writeVarint(0);
+            }
+        }
+        out.write(categories, 0, count);
+        blockSize = 0;
+    }
+
+    // Length (plus lengthOffset) then the bytes
+    private void writeString(byte[] bytes, int lengthOffset) throws IOException {
+        writeVarint(bytes.length + lengthOffset);
+        out.write(bytes);
+    }
+
+    private void writeVarint(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.bookmanagement.snapshot;
+
+import com.example.bookmanagement.model.Book;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The rows of the book list's first page, kept in a small .bks file so the next launch can
+// show them before the database is even opened. The file is only a hint: the list is
+// reconciled with the database as soon as the first page is read, so a stale, missing or
+// damaged file just means the rows appear a little later.
+public final class FirstScreenSnapshot {
+    private FirstScreenSnapshot() {
+    }
+
+    // The saved rows, or an empty list if there are none; a damaged file is deleted
+    public static List<Book> read(File file) {
+        if (!file.isFile()) {
+            return Collections.emptyList();
+        }
+        List<Book> books = new ArrayList<>();
+        try (BookSnapshotReader reader = BookSnapshotReader.open(file)) {
+            while (reader.hasNext()) {
+                books.add(reader.next());
+            }
+            return books;
+        } catch (IOException | UncheckedIOException e) {
+            file.delete();
+            return Collections.emptyList();
+        }
+    }
+
+    // Written to a temporary file and renamed over the old one, so a reader never sees half a file
+    public static void write(File file, List<Book> books) throws IOException {
+        File temporary = new File(file.getPath() + ".tmp");
+        try (BookSnapshotWriter writer = new BookSnapshotWriter(new FileOutputStream(temporary))) {
+            for (Book book : books) {
+                writer.write(book);
+            }
+        }
+        if (!temporary.renameTo(file)) {
+            temporary.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    // Whether the rows differ from the saved ones, so unchanged pages are not rewritten
+    public static boolean differs(List<Book> saved, List<Book> books) {
+        if (saved.size() != books.size()) {
+            return true;
+        }
+        for (int i = 0; i < books.size(); i++) {
+            Book savedBook = saved.get(i);
+            Book book = books.get(i);
+            if (savedBook.getId() != book.getId() || !savedBook.hasSameContent(book)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
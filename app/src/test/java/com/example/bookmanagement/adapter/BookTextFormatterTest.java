@@ -0,0 +1,29 @@
+package com.example.bookmanagement.adapter;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.Assert.*;
+
+public class BookTextFormatterTest {
+    @Test
+    public void idsMatchStringFormat() {
+        char[] out = new char[BookTextFormatter.BUFFER_SIZE];
+        for (int id : new int[]{0, 7, 42, 999, 1000, 123456, Integer.MAX_VALUE, -5, Integer.MIN_VALUE}) {
+            assertEquals(String.format("%03d", id), new String(out, 0, BookTextFormatter.formatId(id, out)));
+        }
+    }
+
+    @Test
+    public void datesMatchJavaTimeAcrossCenturies() {
+        char[] out = new char[BookTextFormatter.BUFFER_SIZE];
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/uuuu");
+        // 1600-01-01 to about 2300, including every leap-year rule
+        for (long day = -135_140; day < 120_000; day++) {
+            String expected = LocalDate.ofEpochDay(day).format(formatter);
+            assertEquals(expected, new String(out, 0, BookTextFormatter.formatDate(day, out)));
+        }
+    }
+}
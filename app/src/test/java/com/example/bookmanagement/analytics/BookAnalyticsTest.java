@@ -0,0 +1,116 @@
+package com.example.bookmanagement.analytics;
+
+import com.example.bookmanagement.database.BookChangeEvent;
+import com.example.bookmanagement.database.BookChangeNotifier;
+import com.example.bookmanagement.database.BookDataSource;
+import com.example.bookmanagement.database.EpochDays;
+import com.example.bookmanagement.model.Book;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class BookAnalyticsTest {
+    // Stands in for the books table
+    private final TreeMap<Integer, Book> table = new TreeMap<>();
+    private final BookChangeNotifier notifier = new BookChangeNotifier();
+    // Reads past this id fail, as they would on a closed or locked database
+    private int failReadsAfterId = Integer.MAX_VALUE;
+    private BookAnalytics analytics;
+
+    @Before
+    public void setUp() {
+        // Only the calls BookAnalytics makes are answered
+        BookDataSource dataSource = (BookDataSource) Proxy.newProxyInstance(BookDataSource.class.getClassLoader(),
+                new Class<?>[]{BookDataSource.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getChangeNotifier":
+                            return notifier;
+                        case "getBook":
+                            checkRead((Integer) args[0]);
+                            return table.get((Integer) args[0]);
+                        case "getBooksAfterId":
+                            checkRead((Integer) args[0]);
+                            List<Book> page = new ArrayList<>();
+                            for (Book book : table.tailMap((Integer) args[0], false).values()) {
+                                if (page.size() == (Integer) args[1]) {
+                                    break;
+                                }
+                                page.add(book);
+                            }
+                            return page;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        analytics = new BookAnalytics(dataSource);
+    }
+
+    @Test
+    public void failedReloadKeepsOldRowsAndIsRetried() {
+        for (int id = 1; id <= 2500; id++) {
+            table.put(id, book(id, 2000));
+        }
+        ColumnarCatalog catalog = analytics.refresh();
+        assertEquals(2500, catalog.size());
+
+        table.put(2501, book(2501, 2000));
+        notifier.publish(BookChangeEvent.Type.BULK, 0);
+        // Fails after the first page has been read
+        failReadsAfterId = 1000;
+        try {
+            analytics.refresh();
+            fail("reload should have failed");
+        } catch (IllegalStateException expected) {
+        }
+        // The catalog still holds the rows of the last good load, not a part of the new one
+        assertEquals(2500, catalog.size());
+
+        failReadsAfterId = Integer.MAX_VALUE;
+        assertEquals(2501, analytics.getStatistics(1900, 2100, 0, null, 1).getTotalCount());
+    }
+
+    @Test
+    public void failedEditsStayPending() {
+        table.put(1, book(1, 2000));
+        analytics.refresh();
+
+        table.put(1, book(1, 2010));
+        notifier.publish(BookChangeEvent.Type.UPDATED, 1);
+        failReadsAfterId = 0;
+        try {
+            analytics.refresh();
+            fail("refresh should have failed");
+        } catch (IllegalStateException expected) {
+        }
+
+        failReadsAfterId = Integer.MAX_VALUE;
+        assertEquals(1, analytics.getStatistics(2010, 2010, 0, null, 1).getTotalCount());
+    }
+
+    @Test
+    public void bookWithAYearOutOfRangeDoesNotStopTheReload() {
+        table.put(1, book(1, 2000));
+        table.put(2, book(2, 40_000));
+        table.put(3, book(3, 2001));
+
+        assertEquals(2, analytics.getStatistics(1900, 2100, 0, null, 1).getTotalCount());
+        assertEquals(3, analytics.refresh().size());
+    }
+
+    private void checkRead(int id) {
+        if (id > failReadsAfterId) {
+            throw new IllegalStateException("database unavailable");
+        }
+    }
+
+    private static Book book(int id, int year) {
+        return new Book(id, "Sách " + id, "Tác giả", EpochDays.toDate(EpochDays.firstDayOfYear(year)), 1);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.bookmanagement.analytics;
+
+import com.example.bookmanagement.database.EpochDays;
+import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.model.BookStatistics;
+import com.example.bookmanagement.model.Category;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class ColumnarCatalogTest {
+    private static final String[] AUTHORS = {"Nam Cao", "Tô Hoài", "Vũ Trọng Phụng", "Nguyễn Du", null};
+
+    @Test
+    public void matchesBruteForceAfterRandomWrites() {
+        Random random = new Random(42);
+        ColumnarCatalog catalog = new ColumnarCatalog();
+        Map<Integer, Book> books = new HashMap<>();
+        // Enough rows for the scan to split into several fork/join leaves
+        for (int id = 1; id <= 200_000; id++) {
+            Book book = randomBook(random, id);
+            books.put(id, book);
+            catalog.put(book);
+        }
+        for (int i = 0; i < 5_000; i++) {
+            int id = 1 + random.nextInt(200_000);
+            if (random.nextBoolean()) {
+                books.remove(id);
+                catalog.remove(id);
+            } else {
+                Book book = randomBook(random, id);
+                books.put(id, book);
+                catalog.put(book);
+            }
+        }
+        assertEquals(books.size(), catalog.size());
+
+        int[][] filters = {{1990, 2020, 0}, {2001, 2001, 0}, {1995, 2005, 0b011}, {1970, 1980, 0b100}};
+        for (int[] filter : filters) {
+            for (String author : new String[]{null, "Tô Hoài"}) {
+                List<Book> expected = new ArrayList<>();
+                for (Book book : books.values()) {
+                    if (matches(book, filter[0], filter[1], filter[2], author)) {
+                        expected.add(book);
+                    }
+                }
+                assertStatistics(expected, catalog.getStatistics(filter[0], filter[1], filter[2], author, 3));
+
+                expected.sort(Comparator.comparing(Book::getPublishDate).thenComparing(Book::getId));
+                int[] ids = catalog.findIds(filter[0], filter[1], filter[2], author);
+                assertEquals(expected.size(), ids.length);
+                for (int i = 0; i < ids.length; i++) {
+                    assertEquals(expected.get(i).getId(), ids[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void unknownAuthorOrEmptyRangeMatchesNothing() {
+        ColumnarCatalog catalog = new ColumnarCatalog();
+        catalog.put(new Book(1, "Số đỏ", "Vũ Trọng Phụng", EpochDays.toDate(EpochDays.firstDayOfYear(1936)), 0b010));
+        catalog.put(new Book(2, "Chưa xuất bản", "Vũ Trọng Phụng", null, 0b010));
+
+        assertEquals(1, catalog.getStatistics(1936, 1936, 0, null, 5).getTotalCount());
+        assertEquals(0, catalog.getStatistics(1936, 1936, 0, "Nam Cao", 5).getTotalCount());
+        assertEquals(0, catalog.getStatistics(1937, 1936, 0, null, 5).getTotalCount());
+        assertEquals(0, catalog.findIds(1900, 2100, 0b001, null).length);
+    }
+
+    @Test
+    public void manyAuthorsAndWideYearRangesMatchBruteForce() {
+        Random random = new Random(21);
+        ColumnarCatalog catalog = new ColumnarCatalog();
+        List<Book> books = new ArrayList<>();
+        // More distinct authors than rows per leaf, each with a few books
+        for (int id = 1; id <= 150_000; id++) {
+            Book book = randomBook(random, id);
+            book.setAuthor("Tác giả " + random.nextInt(100_000));
+            books.add(book);
+            catalog.put(book);
+        }
+
+        assertStatistics(books, catalog.getStatistics(0, 9999, 0, null, 3));
+        assertEquals(books.size(), catalog.findIds(Short.MIN_VALUE, Short.MAX_VALUE, 0, null).length);
+    }
+
+    @Test
+    public void clearForgetsAuthorsAndYears() {
+        ColumnarCatalog catalog = new ColumnarCatalog();
+        catalog.put(new Book(1, "Số đỏ", "Vũ Trọng Phụng", EpochDays.toDate(EpochDays.firstDayOfYear(1936)), 0b010));
+        catalog.clear();
+        catalog.put(new Book(2, "Dế Mèn phiêu lưu ký", "Tô Hoài", EpochDays.toDate(EpochDays.firstDayOfYear(1941)), 0b100));
+
+        assertEquals(1, catalog.size());
+        assertEquals(0, catalog.getStatistics(1900, 2000, 0, "Vũ Trọng Phụng", 5).getTotalCount());
+        BookStatistics statistics = catalog.getStatistics(1900, 2000, 0, null, 5);
+        assertEquals(1, statistics.getTotalCount());
+        assertEquals(Integer.valueOf(1), statistics.getCountsByAuthor().get("Tô Hoài"));
+        assertEquals(1, statistics.getCountsByAuthor().size());
+    }
+
+    private static Book randomBook(Random random, int id) {
+        int day = EpochDays.firstDayOfYear(1970) + random.nextInt(55 * 365);
+        return new Book(id, "Sách " + id, AUTHORS[random.nextInt(AUTHORS.length)], EpochDays.toDate(day),
+                random.nextInt(8));
+    }
+
+    private static boolean matches(Book book, int startYear, int endYear, int categoryMask, String author) {
+        int year = EpochDays.year(EpochDays.fromDate(book.getPublishDate()));
+        return year >= startYear && year <= endYear
+                && (categoryMask == 0 || (book.getCategories() & categoryMask) != 0)
+                && (author == null || author.equals(book.getAuthor()));
+    }
+
+    private static void assertStatistics(List<Book> expected, BookStatistics actual) {
+        TreeMap<Integer, Integer> byYear = new TreeMap<>();
+        Map<String, Integer> byAuthor = new HashMap<>();
+        for (Book book : expected) {
+            byYear.merge(EpochDays.year(EpochDays.fromDate(book.getPublishDate())), 1, Integer::sum);
+            byAuthor.merge(book.getAuthor(), 1, Integer::sum);
+        }
+        assertEquals(expected.size(), actual.getTotalCount());
+        assertEquals(byYear, actual.getCountsByYear());
+        for (Category category : Category.values()) {
+            int count = 0;
+            for (Book book : expected) {
+                count += book.hasCategory(category) ? 1 : 0;
+            }
+            assertEquals(count, actual.getCategoryCount(category));
+        }
+
+        // Top three authors by count, ties by name with the null author first
+        List<Map.Entry<String, Integer>> authors = new ArrayList<>(byAuthor.entrySet());
+        authors.sort(Map.Entry.<String, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey(Comparator.nullsFirst(Comparator.naturalOrder()))));
+        Map<String, Integer> top = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : authors.subList(0, Math.min(3, authors.size()))) {
+            top.put(entry.getKey(), entry.getValue());
+        }
+        assertEquals(new ArrayList<>(top.entrySet()), new ArrayList<>(actual.getCountsByAuthor().entrySet()));
+    }
+}
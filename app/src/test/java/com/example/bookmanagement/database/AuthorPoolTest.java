@@ -0,0 +1,48 @@
+package com.example.bookmanagement.database;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class AuthorPoolTest {
+    @Test
+    public void unknownIdsAreLoadedOnceAndShared() {
+        // Stands in for the authors table
+        Map<Long, String> table = new HashMap<>();
+        int[] loads = {0};
+        AuthorPool pool = new AuthorPool(id -> {
+            loads[0]++;
+            String name = table.get(id);
+            return name != null ? new String(name) : null;
+        });
+        table.put(3L, "Nam Cao");
+        table.put(1000L, "Tô Hoài");
+
+        String first = pool.name(3);
+        assertEquals("Nam Cao", first);
+        assertSame(first, pool.name(3));
+        // Beyond the initial array
+        assertEquals("Tô Hoài", pool.name(1000));
+        assertSame(first, pool.name(3));
+        assertEquals(2, loads[0]);
+
+        assertNull(pool.name(7));
+        assertEquals(3, loads[0]);
+        assertEquals(3, pool.idOf("Nam Cao"));
+        assertEquals(-1, pool.idOf("Kim Lân"));
+    }
+
+    @Test
+    public void putKeepsTheFirstNameForAnId() {
+        AuthorPool pool = new AuthorPool(id -> null);
+        String name = new String("Vũ Trọng Phụng");
+
+        assertSame(name, pool.put(5, name));
+        assertSame(name, pool.put(5, new String("Vũ Trọng Phụng")));
+        assertEquals(5, pool.idOf("Vũ Trọng Phụng"));
+        assertEquals(1, pool.size());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.bookmanagement.database;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class BlockIdAllocatorTest {
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 200_000;
+
+    @Test
+    public void concurrentWritersNeverShareAnId() throws Exception {
+        AtomicInteger reservations = new AtomicInteger();
+        // Stands in for the sqlite_sequence counter, reserving under a lock as reserveIds does
+        long[] sequence = {0};
+        BlockIdAllocator allocator = new BlockIdAllocator(count -> {
+            reservations.incrementAndGet();
+            synchronized (sequence) {
+                long first = sequence[0] + 1;
+                sequence[0] += count;
+                return first;
+            }
+        }, 1000);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(executor.submit(() -> {
+                long[] ids = new long[IDS_PER_THREAD];
+                start.await();
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = allocator.nextId();
+                }
+                return ids;
+            }));
+        }
+        start.countDown();
+
+        List<long[]> allIds = new ArrayList<>();
+        for (Future<long[]> result : results) {
+            allIds.add(result.get());
+        }
+        executor.shutdown();
+
+        boolean[] seen = new boolean[(int) sequence[0] + 1];
+        int total = 0;
+        for (long[] ids : allIds) {
+            for (int i = 0; i < ids.length; i++) {
+                long id = ids[i];
+                assertTrue("id " + id + " out of range", id > 0 && id < seen.length);
+                assertFalse("id " + id + " handed out twice", seen[(int) id]);
+                seen[(int) id] = true;
+                // Each thread sees its own ids in increasing order
+                if (i > 0) {
+                    assertTrue(id > ids[i - 1]);
+                }
+            }
+            total += ids.length;
+        }
+
+        assertEquals(THREADS * IDS_PER_THREAD, total);
+        // Threads racing to refill may each reserve a block, but only one per used-up block
+        int blocksNeeded = THREADS * IDS_PER_THREAD / 1000;
+        assertTrue("reservations " + reservations.get(), reservations.get() <= blocksNeeded * THREADS);
+        System.out.println("BlockIdAllocatorTest: " + total + " ids, " + reservations.get() + " reservations");
+    }
+
+    @Test
+    public void idsComeFromReservedBlocksInOrder() {
+        AtomicInteger reservations = new AtomicInteger();
+        BlockIdAllocator allocator = new BlockIdAllocator(count -> {
+            reservations.incrementAndGet();
+            return 100 + (reservations.get() - 1) * 10L;
+        }, 3);
+
+        assertEquals(100, allocator.nextId());
+        assertEquals(101, allocator.nextId());
+        assertEquals(102, allocator.nextId());
+        assertEquals(1, reservations.get());
+        // A used-up block triggers the next reservation
+        assertEquals(110, allocator.nextId());
+        assertEquals(2, reservations.get());
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.bookmanagement.database;
+
+import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.model.Category;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class BookCacheTest {
+    @Test
+    public void leastRecentlyUsedBookIsEvicted() {
+        BookCache cache = new BookCache(2);
+        cache.put(book(1, "A"));
+        cache.put(book(2, "B"));
+        // Touch 1 so that 2 becomes the eldest
+        cache.get(1);
+        cache.put(book(3, "C"));
+
+        assertNull(cache.get(2));
+        assertNotNull(cache.get(1));
+        assertNotNull(cache.get(3));
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(3, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void cachedBooksAreCopies() {
+        BookCache cache = new BookCache(BookCache.DEFAULT_MAX_SIZE);
+        Book book = book(1, "A");
+        cache.put(book);
+
+        book.setTitle("Changed outside");
+        cache.get(1).setTitle("Changed by a caller");
+
+        assertEquals("A", cache.get(1).getTitle());
+    }
+
+    @Test
+    public void readStartedBeforeWriteIsNotCached() {
+        BookCache cache = new BookCache(BookCache.DEFAULT_MAX_SIZE);
+        long stamp = cache.getWriteStamp();
+        // The book is updated while the old row is still being read
+        cache.put(book(1, "New"));
+        cache.putIfUnchanged(Collections.singletonList(book(1, "Old")), stamp);
+
+        assertEquals("New", cache.get(1).getTitle());
+
+        cache.remove(1);
+        assertNull(cache.get(1));
+    }
+
+    private static Book book(int id, String title) {
+        return new Book(id, title, "Author", new Date(0), Category.NOVEL.mask());
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.bookmanagement.database;
+
+import com.example.bookmanagement.model.Book;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class BookPagingSourceTest {
+    private static final int PAGE_SIZE = 3;
+
+    // Stands in for "WHERE id > ? ORDER BY id LIMIT ?"; pages arrive later, as from the database
+    private final TreeMap<Integer, Book> table = new TreeMap<>();
+    private final Queue<Runnable> deliveries = new ArrayDeque<>();
+    private BookPagingSource source;
+    private int refreshes;
+
+    @Before
+    public void setUp() {
+        source = new BookPagingSource((after, limit, callback) -> {
+            List<Book> page = new ArrayList<>();
+            for (Book book : table.tailMap(after != null ? after.getId() : 0, false).values()) {
+                if (page.size() == limit) {
+                    break;
+                }
+                page.add(book);
+            }
+            deliveries.add(() -> callback.onPageLoaded(page));
+        }, PAGE_SIZE, 1);
+        source.setListener(new BookPagingSource.Listener() {
+            @Override
+            public void onRowsAppended(int start, int count) {
+            }
+
+            @Override
+            public void onRowsReloaded(int start, int count) {
+            }
+
+            @Override
+            public void onRefreshed() {
+                refreshes++;
+            }
+        });
+    }
+
+    @Test
+    public void deleteInAnEarlierPageShiftsRowsInsteadOfRepeatingThem() {
+        addBooks(1, 10);
+        loadAll();
+
+        table.remove(2);
+        table.remove(5);
+        source.refresh();
+        deliverAll();
+
+        assertEquals(1, refreshes);
+        assertRows(1, 3, 4, 6, 7, 8, 9, 10);
+    }
+
+    @Test
+    public void insertedBooksAppearAfterRefresh() {
+        addBooks(1, 9);
+        loadAll();
+        assertTrue(source.isEndReached());
+
+        addBooks(10, 11);
+        source.refresh();
+        deliverAll();
+
+        assertRows(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11);
+    }
+
+    @Test
+    public void firstBookAddedToAnEmptyListAppears() {
+        source.loadNextPage();
+        deliverAll();
+        assertEquals(0, source.size());
+        assertTrue(source.isEndReached());
+
+        addBooks(1, 1);
+        source.refresh();
+        deliverAll();
+
+        assertRows(1);
+    }
+
+    @Test
+    public void listEmptiedAndRefilledByRefreshes() {
+        addBooks(1, 4);
+        loadAll();
+
+        table.clear();
+        source.refresh();
+        deliverAll();
+        assertEquals(0, source.size());
+
+        addBooks(5, 8);
+        source.refresh();
+        deliverAll();
+        // The first page is back; the rest is read while scrolling
+        assertEquals(PAGE_SIZE, source.size());
+        loadAll();
+        assertRows(5, 6, 7, 8);
+    }
+
+    @Test
+    public void evictedPageReadAgainAfterADeleteLeavesAGapInsteadOfARepeat() {
+        addBooks(1, 12);
+        loadAll();
+        table.remove(2);
+
+        // Only the pages around the last one are still in memory
+        assertNull(source.get(0));
+        deliverAll();
+
+        assertEquals(1, source.get(0).getId());
+        assertEquals(3, source.get(1).getId());
+        assertNull(source.get(2));
+        assertEquals(4, source.get(3).getId());
+    }
+
+    private void addBooks(int firstId, int lastId) {
+        for (int id = firstId; id <= lastId; id++) {
+            table.put(id, new Book(id, "Sách " + id, "Tác giả", null, 0));
+        }
+    }
+
+    private void loadAll() {
+        source.loadNextPage();
+        deliverAll();
+        while (!source.isEndReached()) {
+            source.loadNextPage();
+            deliverAll();
+        }
+    }
+
+    private void deliverAll() {
+        Runnable delivery;
+        while ((delivery = deliveries.poll()) != null) {
+            delivery.run();
+        }
+    }
+
+    // Reads every row, waiting for evicted pages to be read back, and checks that no id repeats
+    private void assertRows(Integer... ids) {
+        List<Integer> rows = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for (int position = 0; position < source.size(); position++) {
+            Book book = source.get(position);
+            if (book == null) {
+                deliverAll();
+                book = source.get(position);
+            }
+            if (book != null) {
+                assertTrue("id " + book.getId() + " shown twice", seen.add(book.getId()));
+                rows.add(book.getId());
+            }
+        }
+        assertEquals(Arrays.asList(ids), rows);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.bookmanagement.database;
+
+import com.example.bookmanagement.model.Book;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class BookQueryTest {
+    @Test
+    public void valuesAreBoundSoEqualShapesShareSql() {
+        BookQuery first = BookQuery.builder().publishedBetween(1990, 2000).categories(3).author("Nam Cao")
+                .titlePrefix("Chí").orderBy(BookQuery.Order.TITLE).limit(20).build();
+        BookQuery second = BookQuery.builder().publishedBetween(1800, 1850).categories(4).author("Tô Hoài")
+                .titlePrefix("Dế").orderBy(BookQuery.Order.TITLE).limit(50).build();
+
+        assertEquals(first.shape(), second.shape());
+        assertEquals(first.toSql(), second.toSql());
+        assertEquals("SELECT * FROM books WHERE publish_date BETWEEN ? AND ? AND (categories & ?) != 0"
+                + " AND author_id = (SELECT id FROM authors WHERE name = ?) AND title LIKE ? ESCAPE '\\'"
+                + " ORDER BY title, id LIMIT ? OFFSET ?", first.toSql());
+        assertEquals(Arrays.asList(String.valueOf(EpochDays.firstDayOfYear(1990)),
+                String.valueOf(EpochDays.lastDayOfYear(2000)), "3", "Nam Cao", "Chí%", "20", "0"),
+                Arrays.asList(first.bindArgs()));
+    }
+
+    @Test
+    public void everyShapeHasItsOwnSqlWithOneArgPerParameter() {
+        Book after = new Book(7, "Số đỏ", "Vũ Trọng Phụng", new Date(0), 2);
+        Set<Integer> shapes = new HashSet<>();
+        Set<String> sql = new HashSet<>();
+        for (BookQuery.Order order : BookQuery.Order.values()) {
+            for (int clauses = 0; clauses < 1 << 6; clauses++) {
+                if ((clauses & 16) != 0 && order == BookQuery.Order.NONE) {
+                    continue;
+                }
+                BookQuery.Builder builder = BookQuery.builder().orderBy(order);
+                if ((clauses & 1) != 0) {
+                    builder.publishedBetween(2000, 2010);
+                }
+                if ((clauses & 2) != 0) {
+                    builder.categories(1);
+                }
+                if ((clauses & 4) != 0) {
+                    builder.author("Nam Cao");
+                }
+                if ((clauses & 8) != 0) {
+                    builder.titlePrefix("S");
+                }
+                if ((clauses & 16) != 0) {
+                    builder.after(after);
+                }
+                if ((clauses & 32) != 0) {
+                    builder.limit(10);
+                }
+                BookQuery query = builder.build();
+                String text = query.toSql();
+                shapes.add(query.shape());
+                sql.add(text);
+                assertEquals(text, text.length() - text.replace("?", "").length(), query.bindArgs().length);
+            }
+        }
+        // A keyset by date always brings the date range, so those shapes coincide
+        assertEquals(shapes.size(), sql.size());
+    }
+
+    @Test
+    public void keysetByDateStartsTheRangeAtTheLastBook() {
+        Book after = new Book(42, "Tắt đèn", "Ngô Tất Tố", EpochDays.toDate(EpochDays.firstDayOfYear(2005) + 10), 0);
+        BookQuery query = BookQuery.builder().publishedBetween(2000, 2010).orderBy(BookQuery.Order.PUBLISH_DATE)
+                .after(after).limit(5).build();
+
+        assertEquals("SELECT * FROM books WHERE publish_date BETWEEN ? AND ? AND (publish_date > ? OR id > ?)"
+                + " ORDER BY publish_date, id LIMIT ? OFFSET ?", query.toSql());
+        String day = String.valueOf(EpochDays.firstDayOfYear(2005) + 10);
+        assertEquals(Arrays.asList(day, String.valueOf(EpochDays.lastDayOfYear(2010)), day, "42", "5", "0"),
+                Arrays.asList(query.bindArgs()));
+    }
+
+    @Test
+    public void likeWildcardsInTitlePrefixAreLiteral() {
+        BookQuery query = BookQuery.builder().titlePrefix("100%_\\").build();
+
+        assertEquals("SELECT * FROM books WHERE title LIKE ? ESCAPE '\\'", query.toSql());
+        assertEquals(Arrays.asList("100\\%\\_\\\\%"), Arrays.asList(query.bindArgs()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void keysetNeedsAnOrder() {
+        BookQuery.builder().after(new Book()).build();
+    }
+
+    @Test
+    public void shapeCacheBuildsSqlOncePerShapeAndEvictsLeastRecentlyUsed() {
+        QueryShapeCache cache = new QueryShapeCache(2);
+        BookQuery byId = BookQuery.builder().orderBy(BookQuery.Order.ID).limit(10).build();
+        BookQuery byYear = BookQuery.builder().publishedBetween(2000, 2001).build();
+        BookQuery byTitle = BookQuery.builder().orderBy(BookQuery.Order.TITLE).build();
+
+        assertEquals(byId.toSql(), cache.sqlFor(byId));
+        cache.sqlFor(byYear);
+        cache.sqlFor(byId.after(new Book(5, "A", null, null, 0)).toBuilder().after(null).build());
+        assertEquals(1, cache.getHitCount());
+        // byYear is the least recently used, so it goes first
+        cache.sqlFor(byTitle);
+        cache.sqlFor(byId);
+        assertEquals(2, cache.getHitCount());
+        cache.sqlFor(byYear);
+        assertEquals(4, cache.getMissCount());
+        assertEquals(2, cache.size());
+    }
+}
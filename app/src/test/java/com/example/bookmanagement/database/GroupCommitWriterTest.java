@@ -0,0 +1,181 @@
+package com.example.bookmanagement.database;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.*;
+
+public class GroupCommitWriterTest {
+    private static final int WRITERS = 8;
+    private static final int READERS = 4;
+    private static final int WRITES_PER_WRITER = 2_000;
+
+    // Stands in for SQLite: writes are staged and become visible on commit, which costs a sync
+    private static final class FakeDatabase implements GroupCommitWriter.Transaction {
+        final Map<Long, Long> committed = new ConcurrentHashMap<>();
+        final Map<Long, Long> staged = new HashMap<>();
+        final AtomicBoolean inTransaction = new AtomicBoolean();
+        boolean successful;
+        boolean failNextCommit;
+
+        @Override
+        public void begin() {
+            if (!inTransaction.compareAndSet(false, true)) {
+                throw new IllegalStateException("two writers at once");
+            }
+            successful = false;
+        }
+
+        @Override
+        public void markSuccessful() {
+            successful = true;
+        }
+
+        @Override
+        public void end() {
+            try {
+                if (failNextCommit) {
+                    failNextCommit = false;
+                    throw new IllegalStateException("disk full");
+                }
+                if (successful) {
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(200));
+                    committed.putAll(staged);
+                }
+            } finally {
+                staged.clear();
+                inTransaction.set(false);
+            }
+        }
+
+        long put(long key, long value) {
+            if (!inTransaction.get()) {
+                throw new IllegalStateException("write outside a transaction");
+            }
+            staged.put(key, value);
+            return value;
+        }
+    }
+
+    @Test
+    public void sustainedMixedLoadCommitsEveryWriteInGroups() throws Exception {
+        Object lock = new Object();
+        FakeDatabase database = new FakeDatabase();
+        GroupCommitWriter writer = new GroupCommitWriter(lock, database);
+        AtomicLong reads = new AtomicLong();
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> writers = new ArrayList<>();
+        List<Future<?>> readers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            long base = (long) w * WRITES_PER_WRITER;
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < WRITES_PER_WRITER; i++) {
+                    long key = base + i;
+                    long value = writer.submit(() -> database.put(key, key * 2));
+                    assertEquals(key * 2, value);
+                    // Committed before submit() returns
+                    assertEquals(Long.valueOf(key * 2), database.committed.get(key));
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < READERS; r++) {
+            readers.add(executor.submit(() -> {
+                start.await();
+                long seed = 1;
+                while (writing.get()) {
+                    seed = seed * 6364136223846793005L + 1442695040888963407L;
+                    long key = (seed >>> 33) % ((long) WRITERS * WRITES_PER_WRITER);
+                    Long value = database.committed.get(key);
+                    assertTrue(value == null || value == key * 2);
+                    reads.incrementAndGet();
+                    Thread.yield();
+                }
+                return null;
+            }));
+        }
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : writers) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        writing.set(false);
+        for (Future<?> future : readers) {
+            future.get();
+        }
+        executor.shutdown();
+
+        int totalWrites = WRITERS * WRITES_PER_WRITER;
+        assertEquals(totalWrites, database.committed.size());
+        assertEquals(totalWrites, writer.getWriteCount());
+        // Concurrent writers share commits
+        assertTrue("commits " + writer.getCommitCount(), writer.getCommitCount() < totalWrites);
+
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("GroupCommitWriterTest: %d writes in %d commits, %.0f writes/s, %.0f reads/s%n",
+                totalWrites, writer.getCommitCount(), totalWrites / seconds, reads.get() / seconds);
+    }
+
+    @Test
+    public void failedWriteDoesNotFailItsBatch() {
+        FakeDatabase database = new FakeDatabase();
+        GroupCommitWriter writer = new GroupCommitWriter(new Object(), database);
+
+        try {
+            writer.submit(() -> {
+                throw new IllegalArgumentException("constraint");
+            });
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // Reported to its own caller
+        }
+        assertEquals(7, writer.submit(() -> database.put(1, 7)));
+        assertEquals(Long.valueOf(7), database.committed.get(1L));
+    }
+
+    @Test
+    public void failedCommitFailsEveryWriteAndSkipsCallbacks() {
+        FakeDatabase database = new FakeDatabase();
+        GroupCommitWriter writer = new GroupCommitWriter(new Object(), database);
+        AtomicBoolean committed = new AtomicBoolean();
+        database.failNextCommit = true;
+
+        try {
+            writer.submit(new GroupCommitWriter.Write() {
+                @Override
+                public long apply() {
+                    return database.put(1, 1);
+                }
+
+                @Override
+                public void committed(long result) {
+                    committed.set(true);
+                }
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+            assertEquals("disk full", expected.getMessage());
+        }
+        assertFalse(committed.get());
+        assertTrue(database.committed.isEmpty());
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.bookmanagement.database;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class QueryStatsTest {
+    private static final int THREADS = 4;
+    private static final int RECORDS_PER_THREAD = 250_000;
+
+    @Test
+    public void bucketsCoverEveryValueWithinOneSixteenth() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            long highest = LatencyHistogram.highestValueIn(LatencyHistogram.bucketOf(value));
+            assertTrue(value + " -> " + highest, highest >= value);
+            assertTrue(value + " -> " + highest, highest - value <= value / 16);
+        }
+    }
+
+    @Test
+    public void percentilesMatchSortedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_000, histogram.getPercentileNanos(50), 500_000 / 16.0);
+        assertEquals(990_000, histogram.getPercentileNanos(99), 990_000 / 16.0);
+        assertEquals(1_000_000, histogram.getMaxNanos());
+        assertEquals(1_000_000, histogram.getPercentileNanos(100));
+        histogram.reset();
+        assertEquals(0, histogram.getPercentileNanos(50));
+    }
+
+    @Test
+    public void concurrentRecordingLosesNothing() throws Exception {
+        QueryStats stats = new QueryStats();
+        QueryStats.Operation operation = stats.register("getBook");
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < RECORDS_PER_THREAD; i++) {
+                    stats.record(operation, System.nanoTime(), 2);
+                }
+                return null;
+            }));
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        executor.shutdown();
+
+        long total = (long) THREADS * RECORDS_PER_THREAD;
+        assertEquals(total, operation.getCount());
+        assertEquals(2 * total, operation.getRows());
+        assertEquals(total, operation.getLatency().getCount());
+        System.out.printf("QueryStatsTest: %d records from %d threads, %.1f ns each%n",
+                total, THREADS, (double) elapsedNanos / total);
+    }
+
+    @Test
+    public void slowCallsReachTheListenerWithTheirArguments() {
+        QueryStats stats = new QueryStats();
+        QueryStats.Operation operation = stats.register("searchBooks");
+        List<String> slow = new ArrayList<>();
+        stats.setSlowQueryListener((op, nanos, rows, args) ->
+                slow.add(op.getName() + " " + rows + " " + QueryStats.formatArgs(args)));
+
+        stats.record(operation, System.nanoTime(), 3, "kieu*");
+        assertTrue(slow.isEmpty());
+
+        stats.setSlowQueryThresholdMillis(5);
+        stats.record(operation, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(6), 1, "lich* su*");
+        assertEquals(1, slow.size());
+        assertEquals("searchBooks 1 [lich* su*]", slow.get(0));
+
+        String dump = stats.dump();
+        assertTrue(dump, dump.startsWith("searchBooks: count=2 rows=4 p50="));
+        assertTrue(dump, dump.contains("p99="));
+    }
+
+    @Test
+    public void everyArgumentShapeReachesTheListener() {
+        QueryStats stats = new QueryStats();
+        QueryStats.Operation operation = stats.register("getStatistics");
+        List<String> slow = new ArrayList<>();
+        stats.setSlowQueryListener((op, nanos, rows, args) -> slow.add(QueryStats.formatArgs(args)));
+        stats.setSlowQueryThresholdMillis(5);
+        long slowStart = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(6);
+
+        stats.record(operation, slowStart, 0);
+        stats.record(operation, slowStart, 1, 42);
+        stats.record(operation, slowStart, 2, 1990, 2000, 5);
+        stats.record(operation, slowStart, 3, new String[]{"7304", "7670"});
+        // Fast calls are counted without reaching the listener
+        stats.record(operation, System.nanoTime(), 4, 7);
+
+        assertEquals(Arrays.asList("[]", "[42]", "[1990, 2000, 5]", "[7304, 7670]"), slow);
+        assertEquals(5, operation.getCount());
+        assertEquals(10, operation.getRows());
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.bookmanagement.repository;
+
+import com.example.bookmanagement.database.BookChangeEvent;
+import com.example.bookmanagement.database.BookChangeNotifier;
+import com.example.bookmanagement.database.BookDataSource;
+import com.example.bookmanagement.database.BookQuery;
+import com.example.bookmanagement.database.CursorBookList;
+import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.model.BookStatistics;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class BookRepositoryTest {
+    private FakeDataSource dataSource;
+    private QueueExecutor ioExecutor;
+    private QueueExecutor mainExecutor;
+    private BookRepository repository;
+
+    @Before
+    public void setUp() {
+        dataSource = new FakeDataSource();
+        ioExecutor = new QueueExecutor();
+        mainExecutor = new QueueExecutor();
+        repository = new BookRepository(dataSource, ioExecutor, ioExecutor, mainExecutor);
+    }
+
+    @Test
+    public void resultsAreDeliveredOnCallbackExecutor() {
+        Executor sameThread = Runnable::run;
+        BookRepository direct = new BookRepository(dataSource, sameThread, sameThread, sameThread);
+        AtomicReference<Long> addedId = new AtomicReference<>();
+        AtomicReference<List<Book>> loaded = new AtomicReference<>();
+
+        direct.addBook(book("Dế Mèn phiêu lưu ký"), addedId::set);
+        direct.getAllBooks(loaded::set);
+
+        assertEquals(Long.valueOf(1), addedId.get());
+        assertEquals(1, loaded.get().size());
+    }
+
+    @Test
+    public void callbackWaitsForMainExecutor() {
+        AtomicReference<List<Book>> loaded = new AtomicReference<>();
+        repository.getAllBooks(loaded::set);
+
+        ioExecutor.runAll();
+        assertNull(loaded.get());
+
+        mainExecutor.runAll();
+        assertNotNull(loaded.get());
+    }
+
+    @Test
+    public void cancelAllSkipsPendingReads() {
+        AtomicReference<List<Book>> loaded = new AtomicReference<>();
+        repository.getAllBooks(loaded::set);
+
+        repository.cancelAll();
+        ioExecutor.runAll();
+        mainExecutor.runAll();
+
+        assertEquals(0, dataSource.reads);
+        assertNull(loaded.get());
+    }
+
+    @Test
+    public void cancelAllStillRunsPendingWritesWithoutCallback() {
+        AtomicReference<Long> addedId = new AtomicReference<>();
+        repository.addBook(book("Số đỏ"), addedId::set);
+
+        repository.cancelAll();
+        ioExecutor.runAll();
+        mainExecutor.runAll();
+
+        assertEquals(1, dataSource.books.size());
+        assertNull(addedId.get());
+    }
+
+    @Test
+    public void failuresAreReportedToOnError() {
+        dataSource.failReads = true;
+        AtomicReference<Exception> error = new AtomicReference<>();
+        repository.getAllBooks(new BookRepository.Callback<List<Book>>() {
+            @Override
+            public void onResult(List<Book> result) {
+                fail("no result expected");
+            }
+
+            @Override
+            public void onError(Exception e) {
+                error.set(e);
+            }
+        });
+
+        ioExecutor.runAll();
+        mainExecutor.runAll();
+
+        assertTrue(error.get() instanceof IllegalStateException);
+    }
+
+    @Test
+    public void changesAreDeliveredOnCallbackExecutorUntilCancelled() {
+        List<BookChangeEvent> events = new ArrayList<>();
+        repository.observeChanges(events::add);
+
+        repository.addBook(book("Số đỏ"), null);
+        repository.deleteBook(1, null);
+        ioExecutor.runAll();
+        assertTrue(events.isEmpty());
+        mainExecutor.runAll();
+
+        assertEquals(2, events.size());
+        assertEquals(BookChangeEvent.Type.INSERTED, events.get(0).getType());
+        assertEquals(BookChangeEvent.Type.DELETED, events.get(1).getType());
+        assertEquals(1, events.get(1).getBookId());
+        assertEquals(2, events.get(1).getVersion());
+        assertEquals(2, repository.getChangeVersion());
+
+        repository.cancelAll();
+        repository.addBook(book("Tắt đèn"), null);
+        ioExecutor.runAll();
+        mainExecutor.runAll();
+        assertEquals(2, events.size());
+        assertEquals(3, repository.getChangeVersion());
+    }
+
+    private static Book book(String title) {
+        return new Book(0, title, "Tô Hoài", new Date(0), false, true, false);
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    private static class FakeDataSource implements BookDataSource {
+        final List<Book> books = new ArrayList<>();
+        final BookChangeNotifier changeNotifier = new BookChangeNotifier();
+        int reads;
+        boolean failReads;
+
+        @Override
+        public long addBook(Book book) {
+            book.setId(books.size() + 1);
+            books.add(book);
+            changeNotifier.publish(BookChangeEvent.Type.INSERTED, book.getId());
+            return book.getId();
+        }
+
+        @Override
+        public int addBooks(Iterable<Book> newBooks, ImportProgressListener progressListener) {
+            int added = 0;
+            for (Book book : newBooks) {
+                addBook(book);
+                added++;
+            }
+            return added;
+        }
+
+        @Override
+        public Book getBook(int id) {
+            reads++;
+            for (Book book : books) {
+                if (book.getId() == id) {
+                    return book;
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public List<Book> getAllBooks() {
+            reads++;
+            if (failReads) {
+                throw new IllegalStateException("disk error");
+            }
+            return new ArrayList<>(books);
+        }
+
+        @Override
+        public List<Book> getBooksAfterId(int afterId, int limit) {
+            reads++;
+            List<Book> page = new ArrayList<>();
+            for (Book book : books) {
+                if (book.getId() > afterId && page.size() < limit) {
+                    page.add(book);
+                }
+            }
+            return page;
+        }
+
+        @Override
+        public int updateBook(Book book) {
+            return 1;
+        }
+
+        @Override
+        public void deleteBook(int id) {
+            if (books.removeIf(book -> book.getId() == id)) {
+                changeNotifier.publish(BookChangeEvent.Type.DELETED, id);
+            }
+        }
+
+        @Override
+        public List<Book> getBooksByYearRangeAndCategories(int startYear, int endYear, int categoryMask) {
+            return getAllBooks();
+        }
+
+        @Override
+        public List<Book> getBooksByYearRangeAndCategories(int startYear, int endYear, int categoryMask,
+                                                           Book after, int limit) {
+            return getBooksAfterId(after != null ? after.getId() : 0, limit);
+        }
+
+        @Override
+        public CursorBookList openBooksByYearRangeAndCategories(int startYear, int endYear, int categoryMask) {
+            throw new UnsupportedOperationException("needs a database cursor");
+        }
+
+        @Override
+        public List<Book> queryBooks(BookQuery query) {
+            return getAllBooks();
+        }
+
+        @Override
+        public CursorBookList openBooks(BookQuery query) {
+            throw new UnsupportedOperationException("needs a database cursor");
+        }
+
+        @Override
+        public List<Book> searchBooks(String query, int limit) {
+            return getAllBooks();
+        }
+
+        @Override
+        public BookStatistics getStatistics(int startYear, int endYear, int categoryMask, int authorLimit) {
+            return new BookStatistics();
+        }
+
+        @Override
+        public BookChangeNotifier getChangeNotifier() {
+            return changeNotifier;
+        }
+    }
+}
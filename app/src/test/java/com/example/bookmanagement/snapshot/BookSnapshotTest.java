@@ -0,0 +1,169 @@
+package com.example.bookmanagement.snapshot;
+
+import com.example.bookmanagement.database.EpochDays;
+import com.example.bookmanagement.model.Book;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BookSnapshotTest {
+    @Test
+    public void roundTripKeepsEveryField() throws IOException {
+        List<Book> books = catalog(10_000);
+        books.add(new Book(20_000, null, null, null, 0));
+        books.add(new Book(20_001, "Đất rừng phương Nam 📚", "Đoàn Giỏi", EpochDays.toDate(-40_000), 7));
+        // Ids and dates that go backwards
+        books.add(new Book(3, "", "Nam Cao", EpochDays.toDate(90_000), 2));
+
+        File file = File.createTempFile("catalog", ".bks");
+        List<Book> read = new ArrayList<>();
+        try {
+            try (BookSnapshotWriter writer = new BookSnapshotWriter(new FileOutputStream(file))) {
+                for (Book book : books) {
+                    writer.write(book);
+                }
+                assertEquals(books.size(), writer.getBookCount());
+            }
+            try (BookSnapshotReader reader = BookSnapshotReader.open(file)) {
+                while (reader.hasNext()) {
+                    read.add(reader.next());
+                }
+            }
+        } finally {
+            file.delete();
+        }
+
+        assertEquals(books.size(), read.size());
+        for (int i = 0; i < books.size(); i++) {
+            Book expected = books.get(i);
+            Book actual = read.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertTrue("row " + i, expected.hasSameContent(actual));
+        }
+    }
+
+    @Test
+    public void snapshotIsSmallerThanSerializationAndCsv() throws IOException {
+        List<Book> books = catalog(50_000);
+
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        long start = System.nanoTime();
+        try (BookSnapshotWriter writer = new BookSnapshotWriter(snapshot)) {
+            for (Book book : books) {
+                writer.write(book);
+            }
+        }
+        long snapshotNanos = System.nanoTime() - start;
+
+        ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+        start = System.nanoTime();
+        try (ObjectOutputStream out = new ObjectOutputStream(serialized)) {
+            out.writeObject(new ArrayList<>(books));
+        }
+        long serializedNanos = System.nanoTime() - start;
+
+        StringBuilder csv = new StringBuilder("id,title,author,publish_date,categories\n");
+        for (Book book : books) {
+            csv.append(book.getId()).append(",\"").append(book.getTitle()).append("\",\"")
+                    .append(book.getAuthor()).append("\",")
+                    .append(EpochDays.fromDate(book.getPublishDate())).append(',')
+                    .append(book.getCategories()).append('\n');
+        }
+        int csvBytes = csv.toString().getBytes(StandardCharsets.UTF_8).length;
+
+        System.out.printf("BookSnapshotTest: %d books, snapshot %d bytes in %d ms,"
+                        + " serialization %d bytes in %d ms, CSV %d bytes%n",
+                books.size(), snapshot.size(), snapshotNanos / 1_000_000,
+                serialized.size(), serializedNanos / 1_000_000, csvBytes);
+        assertTrue(snapshot.size() < serialized.size() / 2);
+        assertTrue(snapshot.size() < csvBytes);
+
+        int count = 0;
+        BookSnapshotReader reader = new BookSnapshotReader(ByteBuffer.wrap(snapshot.toByteArray()));
+        while (reader.hasNext()) {
+            reader.next();
+            count++;
+        }
+        assertEquals(books.size(), count);
+    }
+
+    @Test
+    public void damagedSnapshotsAreRejected() throws IOException {
+        try {
+            new BookSnapshotReader(ByteBuffer.wrap("id,title\n".getBytes(StandardCharsets.UTF_8)));
+            fail();
+        } catch (IOException expected) {
+            // Not a snapshot at all
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BookSnapshotWriter writer = new BookSnapshotWriter(out)) {
+            for (Book book : catalog(100)) {
+                writer.write(book);
+            }
+        }
+        byte[] truncated = Arrays.copyOf(out.toByteArray(), out.size() / 2);
+        BookSnapshotReader reader = new BookSnapshotReader(ByteBuffer.wrap(truncated));
+        try {
+            reader.hasNext();
+            fail();
+        } catch (UncheckedIOException expected) {
+            // Reported the way the CSV and JSON readers report bad input
+        }
+    }
+
+    @Test
+    public void firstScreenIsReplacedWholeAndDamageIsDropped() throws IOException {
+        File file = File.createTempFile("first_screen", ".bks");
+        try {
+            List<Book> page = catalog(50);
+            FirstScreenSnapshot.write(file, page);
+            List<Book> read = FirstScreenSnapshot.read(file);
+            assertFalse(FirstScreenSnapshot.differs(page, read));
+
+            List<Book> edited = new ArrayList<>(read);
+            edited.set(10, new Book(edited.get(10).getId(), "Sửa", "Nam Cao", edited.get(10).getPublishDate(), 1));
+            assertTrue(FirstScreenSnapshot.differs(read, edited));
+            FirstScreenSnapshot.write(file, edited);
+            assertFalse(FirstScreenSnapshot.differs(edited, FirstScreenSnapshot.read(file)));
+            assertFalse(new File(file.getPath() + ".tmp").exists());
+
+            // A damaged file reads as no rows and is removed
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write("id,title\n".getBytes(StandardCharsets.UTF_8));
+            }
+            assertTrue(FirstScreenSnapshot.read(file).isEmpty());
+            assertFalse(file.exists());
+            assertTrue(FirstScreenSnapshot.read(file).isEmpty());
+        } finally {
+            file.delete();
+        }
+    }
+
+    // Ids in order with gaps, a few hundred authors and dates spread over a century
+    private static List<Book> catalog(int size) {
+        Random random = new Random(42);
+        List<Book> books = new ArrayList<>();
+        int id = 0;
+        for (int i = 0; i < size; i++) {
+            id += 1 + random.nextInt(3);
+            books.add(new Book(id, "Sách số " + i, "Tác giả " + random.nextInt(300),
+                    EpochDays.toDate(random.nextInt(36_500)), random.nextInt(8)));
+        }
+        return books;
+    }
+}
@@ -0,0 +1,77 @@
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+// JMH benchmarks for the data layer and model, run on the plain JVM with `./gradlew :benchmark:jmh`.
+// The app classes that need no device are compiled straight from the app sources, against the
+// SDK's android.jar for interfaces such as Cursor. Results are written as JSON to
+// build/results/jmh/results.json so runs can be compared between builds.
+// Resolved only when a benchmark task needs the jar, so other builds work without an SDK
+val androidJar = files(provider {
+    val localProperties = java.util.Properties()
+    val localPropertiesFile = rootProject.file("local.properties")
+    if (localPropertiesFile.exists()) {
+        localPropertiesFile.inputStream().use { localProperties.load(it) }
+    }
+    val sdkDir = localProperties.getProperty("sdk.dir") ?: System.getenv("ANDROID_HOME")
+        ?: System.getenv("ANDROID_SDK_ROOT")
+        ?: throw GradleException("Set sdk.dir in local.properties, ANDROID_HOME or ANDROID_SDK_ROOT to run the benchmarks")
+    // The platform the app compiles against
+    val jar = file("$sdkDir/platforms/android-${libs.versions.compileSdk.get()}/android.jar")
+    if (!jar.exists()) {
+        throw GradleException("$jar not found; install that SDK platform to run the benchmarks")
+    }
+    jar
+})
+
+// DiffUtil only ships inside the RecyclerView AAR; its classes.jar is plain JVM bytecode
+val recyclerViewAar: Configuration by configurations.creating {
+    isTransitive = false
+}
+val extractRecyclerViewClasses by tasks.registering(Copy::class) {
+    from({ zipTree(recyclerViewAar.singleFile) })
+    include("classes.jar")
+    into(layout.buildDirectory.dir("recyclerview"))
+}
+val recyclerViewClasses = files(layout.buildDirectory.file("recyclerview/classes.jar"))
+    .builtBy(extractRecyclerViewClasses)
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include("com/example/bookmanagement/model/**")
+            include("com/example/bookmanagement/analytics/ColumnarCatalog.java")
+            include("com/example/bookmanagement/adapter/BookDiffCallback.java")
+            include("com/example/bookmanagement/database/AuthorPool.java")
+            include("com/example/bookmanagement/database/BookRowMapper.java")
+            include("com/example/bookmanagement/database/EpochDays.java")
+            include("com/example/bookmanagement/database/LatencyHistogram.java")
+            include("com/example/bookmanagement/database/QueryStats.java")
+        }
+    }
+}
+
+dependencies {
+    recyclerViewAar("androidx.recyclerview:recyclerview:${libs.versions.recyclerview.get()}@aar")
+    compileOnly(androidJar)
+    compileOnly(recyclerViewClasses)
+    jmh(androidJar)
+    jmh(recyclerViewClasses)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    // Adds gc.alloc.rate.norm (bytes allocated per operation) next to the throughput
+    profilers.add("gc")
+    // Room for the 1M-book catalog
+    jvmArgsAppend.add("-Xmx4g")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+}
@@ -0,0 +1,54 @@
+package com.example.bookmanagement.adapter;
+
+import androidx.recyclerview.widget.DiffUtil;
+
+import com.example.bookmanagement.benchmark.CatalogState;
+import com.example.bookmanagement.model.Book;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The background diff BookAdapter runs after an edit: one book changed, one deleted and one
+// added at the end, against the whole catalog. In this package for the package-private
+// BookDiffCallback.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookDiffBenchmark {
+    private List<Book> oldBooks;
+    private List<Book> newBooks;
+
+    @Setup
+    public void setUp(CatalogState catalog) {
+        oldBooks = catalog.books;
+        newBooks = new ArrayList<>(oldBooks);
+        int middle = newBooks.size() / 2;
+        Book edited = new Book(newBooks.get(middle));
+        edited.setTitle(edited.getTitle() + " (sửa)");
+        newBooks.set(middle, edited);
+        newBooks.remove(newBooks.size() / 4);
+        Book added = new Book(oldBooks.get(0));
+        added.setId(oldBooks.size() + 1);
+        newBooks.add(added);
+    }
+
+    @Benchmark
+    public DiffUtil.DiffResult calculateDiff() {
+        return DiffUtil.calculateDiff(new BookDiffCallback(oldBooks, newBooks), false);
+    }
+}
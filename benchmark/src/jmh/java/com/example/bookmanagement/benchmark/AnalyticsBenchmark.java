@@ -0,0 +1,87 @@
+package com.example.bookmanagement.benchmark;
+
+import com.example.bookmanagement.analytics.ColumnarCatalog;
+import com.example.bookmanagement.database.EpochDays;
+import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.model.BookStatistics;
+import com.example.bookmanagement.model.Category;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+// Statistics for one filter (1950-2000, science or children) over the whole catalog:
+// the columnar catalog scanned in parallel and on one thread, against a loop over Book
+// objects doing the same counting. The SQL side of the comparison runs on a device, in
+// DatabaseHelperLatencyTest.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnalyticsBenchmark {
+    private static final int START_YEAR = 1950;
+    private static final int END_YEAR = 2000;
+
+    private final int mask = Category.SCIENCE.mask() | Category.CHILDREN.mask();
+    private ColumnarCatalog parallel;
+    private ColumnarCatalog singleThread;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        parallel = new ColumnarCatalog();
+        parallel.putAll(catalog.books);
+        singleThread = new ColumnarCatalog(new ForkJoinPool(1));
+        singleThread.putAll(catalog.books);
+    }
+
+    @Benchmark
+    public BookStatistics columnarParallel() {
+        return parallel.getStatistics(START_YEAR, END_YEAR, mask, null, 10);
+    }
+
+    @Benchmark
+    public BookStatistics columnarSingleThread() {
+        return singleThread.getStatistics(START_YEAR, END_YEAR, mask, null, 10);
+    }
+
+    @Benchmark
+    public int[] columnarFindIds() {
+        return parallel.findIds(START_YEAR, END_YEAR, mask, null);
+    }
+
+    @Benchmark
+    public BookStatistics bookLoop(CatalogState catalog) {
+        int firstDay = EpochDays.firstDayOfYear(START_YEAR);
+        int lastDay = EpochDays.lastDayOfYear(END_YEAR);
+        Map<Long, Integer> counts = new HashMap<>();
+        Map<String, Integer> authors = new HashMap<>();
+        for (Book book : catalog.books) {
+            int day = EpochDays.fromDate(book.getPublishDate());
+            if (day < firstDay || day > lastDay || (book.getCategories() & mask) == 0) {
+                continue;
+            }
+            counts.merge(((long) EpochDays.year(day) << 8) | book.getCategories(), 1, Integer::sum);
+            authors.merge(book.getAuthor(), 1, Integer::sum);
+        }
+        BookStatistics statistics = new BookStatistics();
+        for (Map.Entry<Long, Integer> entry : counts.entrySet()) {
+            statistics.addCount((int) (entry.getKey() >> 8), (int) (entry.getKey() & 0xFF), entry.getValue());
+        }
+        return statistics;
+    }
+}
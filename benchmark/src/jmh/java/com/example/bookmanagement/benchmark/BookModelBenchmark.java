@@ -0,0 +1,93 @@
+package com.example.bookmanagement.benchmark;
+
+import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.model.Category;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Display text computed per book: the formatted id, the category labels and the publish
+// date text. One operation is one book, taken in turn from the catalog. The legacy*
+// variants rebuild the text on every call, as Book did before it cached it; run with
+// -prof gc to compare gc.alloc.rate.norm.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookModelBenchmark {
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy", Locale.getDefault());
+    private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("dd/MM/yyyy", Locale.getDefault())
+            .withZone(ZoneId.systemDefault());
+    private List<Book> books;
+    private int next;
+
+    @Setup
+    public void setUp(CatalogState catalog) {
+        books = catalog.books;
+    }
+
+    @Benchmark
+    public String formattedId() {
+        return nextBook().getFormattedId();
+    }
+
+    @Benchmark
+    public String legacyFormattedId() {
+        return String.format("%03d", nextBook().getId());
+    }
+
+    @Benchmark
+    public String categoriesString() {
+        return nextBook().getCategoriesString();
+    }
+
+    @Benchmark
+    public String legacyCategoriesString() {
+        Book book = nextBook();
+        StringBuilder categoriesString = new StringBuilder();
+        for (Category category : Category.values()) {
+            if (book.hasCategory(category)) {
+                if (categoriesString.length() > 0) {
+                    categoriesString.append(", ");
+                }
+                categoriesString.append(category.getLabel());
+            }
+        }
+        return categoriesString.toString();
+    }
+
+    // As the book dialog in MainActivity formats dates
+    @Benchmark
+    public String simpleDateFormat() {
+        return dateFormat.format(nextBook().getPublishDate());
+    }
+
+    @Benchmark
+    public String dateTimeFormatter() {
+        return dateFormatter.format(Instant.ofEpochMilli(nextBook().getPublishDate().getTime()));
+    }
+
+    private Book nextBook() {
+        Book book = books.get(next);
+        next = next + 1 < books.size() ? next + 1 : 0;
+        return book;
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.bookmanagement.benchmark;
+
+import com.example.bookmanagement.database.BookRowMapper;
+import com.example.bookmanagement.model.Book;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// One operation maps one row, moving through the catalog and wrapping at its end, so the
+// score is rows per second and the gc profiler's gc.alloc.rate.norm is bytes per row.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BookRowMapperBenchmark {
+    private FakeBookCursor cursor;
+    private BookRowMapper mapper;
+    private final Book reusedBook = new Book();
+
+    @Setup
+    public void setUp(CatalogState catalog) {
+        cursor = FakeBookCursor.of(catalog.books);
+        mapper = new BookRowMapper(cursor);
+    }
+
+    @Benchmark
+    public Book legacyCursorToBook() {
+        nextRow();
+        return LegacyBookMapper.cursorToBook(cursor);
+    }
+
+    @Benchmark
+    public Book rowMapper() {
+        nextRow();
+        return mapper.map(cursor);
+    }
+
+    @Benchmark
+    public Book rowMapperReusingBook() {
+        nextRow();
+        return mapper.map(cursor, reusedBook);
+    }
+
+    private void nextRow() {
+        if (!cursor.moveToNext()) {
+            cursor.moveToFirst();
+        }
+    }
+}
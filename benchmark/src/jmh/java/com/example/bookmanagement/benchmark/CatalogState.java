@@ -0,0 +1,25 @@
+package com.example.bookmanagement.benchmark;
+
+import com.example.bookmanagement.model.Book;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+// Catalog shared by the threads of a benchmark, generated once per size
+@State(Scope.Benchmark)
+public class CatalogState {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    public List<Book> books;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        books = Catalogs.generate(size);
+    }
+}
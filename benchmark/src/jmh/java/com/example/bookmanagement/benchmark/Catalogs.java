@@ -0,0 +1,38 @@
+package com.example.bookmanagement.benchmark;
+
+import com.example.bookmanagement.database.EpochDays;
+import com.example.bookmanagement.model.Book;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+// Generated catalogs: random titles, authors, dates between 1900 and 2024 and categories.
+// The seed is fixed so every run and every benchmark sees the same books.
+public final class Catalogs {
+    private static final String[] WORDS = {"Lịch", "sử", "Việt", "Nam", "Truyện", "Kiều", "Thơ", "tuyển",
+            "tập", "Khoa", "học", "Vũ", "trụ", "Dế", "Mèn", "phiêu", "lưu", "ký", "Số", "đỏ"};
+
+    private Catalogs() {
+    }
+
+    public static List<Book> generate(int size) {
+        Random random = new Random(42);
+        long firstDay = LocalDate.of(1900, 1, 1).toEpochDay();
+        long lastDay = LocalDate.of(2024, 12, 31).toEpochDay();
+        TimeZone zone = TimeZone.getDefault();
+        List<Book> books = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + WORDS[random.nextInt(WORDS.length)];
+            String author = "Tác giả " + random.nextInt(Math.max(1, size / 20));
+            long epochDay = firstDay + (long) (random.nextDouble() * (lastDay - firstDay));
+            Date publishDate = new Date(EpochDays.toMillis(epochDay, zone));
+            books.add(new Book(i + 1, title, author, publishDate, 1 + random.nextInt(7)));
+        }
+        return books;
+    }
+}
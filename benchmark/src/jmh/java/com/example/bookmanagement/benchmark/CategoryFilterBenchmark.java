@@ -0,0 +1,62 @@
+package com.example.bookmanagement.benchmark;
+
+import com.example.bookmanagement.model.Book;
+import com.example.bookmanagement.model.Category;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+// Counting the books of a catalog in any of a set of categories, the filter the statistics
+// screen applies. One operation is a pass over the whole catalog.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CategoryFilterBenchmark {
+    private final int mask = Category.SCIENCE.mask() | Category.CHILDREN.mask();
+
+    @Benchmark
+    public int maskLoop(CatalogState catalog) {
+        int count = 0;
+        for (Book book : catalog.books) {
+            if ((book.getCategories() & mask) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // The three boolean getters, as the screen checked categories before the bitmask
+    @Benchmark
+    public int booleanGetters(CatalogState catalog) {
+        boolean science = Category.SCIENCE.isIn(mask);
+        boolean children = Category.CHILDREN.isIn(mask);
+        int count = 0;
+        for (Book book : catalog.books) {
+            if ((science && book.isScience()) || (children && book.isChildren())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Benchmark
+    public List<Book> streamCollect(CatalogState catalog) {
+        return catalog.books.stream()
+                .filter(book -> (book.getCategories() & mask) != 0)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.bookmanagement.benchmark;
+
+import android.content.ContentResolver;
+import android.database.CharArrayBuffer;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.DataSetObserver;
+import android.net.Uri;
+import android.os.Bundle;
+
+import com.example.bookmanagement.database.EpochDays;
+import com.example.bookmanagement.model.Book;
+
+import java.util.List;
+
+// In-memory cursor with the columns of the books table, over the rows of a book list.
+// getColumnIndex walks the column names the way AbstractCursor does, so a mapper that
+// looks columns up on every row pays the same cost it would on a device. Strings are
+// returned as stored, keeping SQLite's own per-call string copies out of the comparison.
+public class FakeBookCursor implements Cursor {
+    private static final String[] COLUMNS = {"id", "title", "author", "publish_date", "categories"};
+
+    private final int[] ids;
+    private final String[] titles;
+    private final String[] authors;
+    private final long[] publishDates;
+    private final int[] categories;
+    private int position = -1;
+    private boolean closed;
+
+    private FakeBookCursor(int rows) {
+        ids = new int[rows];
+        titles = new String[rows];
+        authors = new String[rows];
+        publishDates = new long[rows];
+        categories = new int[rows];
+    }
+
+    // Rows holding the values of the given books, in list order
+    public static FakeBookCursor of(List<Book> books) {
+        FakeBookCursor cursor = new FakeBookCursor(books.size());
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            cursor.ids[i] = book.getId();
+            cursor.titles[i] = book.getTitle();
+            cursor.authors[i] = book.getAuthor();
+            cursor.publishDates[i] = EpochDays.fromDate(book.getPublishDate());
+            cursor.categories[i] = book.getCategories();
+        }
+        return cursor;
+    }
+
+    @Override
+    public int getCount() {
+        return ids.length;
+    }
+
+    @Override
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public boolean move(int offset) {
+        return moveToPosition(position + offset);
+    }
+
+    @Override
+    public boolean moveToPosition(int newPosition) {
+        position = Math.max(-1, Math.min(ids.length, newPosition));
+        return position >= 0 && position < ids.length;
+    }
+
+    @Override
+    public boolean moveToFirst() {
+        return moveToPosition(0);
+    }
+
+    @Override
+    public boolean moveToLast() {
+        return moveToPosition(ids.length - 1);
+    }
+
+    @Override
+    public boolean moveToNext() {
+        return moveToPosition(position + 1);
+    }
+
+    @Override
+    public boolean moveToPrevious() {
+        return moveToPosition(position - 1);
+    }
+
+    @Override
+    public boolean isFirst() {
+        return position == 0 && ids.length > 0;
+    }
+
+    @Override
+    public boolean isLast() {
+        return position == ids.length - 1 && ids.length > 0;
+    }
+
+    @Override
+    public boolean isBeforeFirst() {
+        return position < 0;
+    }
+
+    @Override
+    public boolean isAfterLast() {
+        return position >= ids.length;
+    }
+
+    @Override
+    public int getColumnIndex(String columnName) {
+        int periodIndex = columnName.lastIndexOf('.');
+        if (periodIndex != -1) {
+            columnName = columnName.substring(periodIndex + 1);
+        }
+        for (int i = 0; i < COLUMNS.length; i++) {
+            if (COLUMNS[i].equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getColumnIndexOrThrow(String columnName) {
+        int index = getColumnIndex(columnName);
+        if (index < 0) {
+            throw new IllegalArgumentException("column '" + columnName + "' does not exist");
+        }
+        return index;
+    }
+
+    @Override
+    public String getColumnName(int columnIndex) {
+        return COLUMNS[columnIndex];
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return COLUMNS.clone();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public byte[] getBlob(int columnIndex) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getString(int columnIndex) {
+        switch (columnIndex) {
+            case 1:
+                return titles[position];
+            case 2:
+                return authors[position];
+            default:
+                return String.valueOf(getLong(columnIndex));
+        }
+    }
+
+    @Override
+    public void copyStringToBuffer(int columnIndex, CharArrayBuffer buffer) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public short getShort(int columnIndex) {
+        return (short) getLong(columnIndex);
+    }
+
+    @Override
+    public int getInt(int columnIndex) {
+        return (int) getLong(columnIndex);
+    }
+
+    @Override
+    public long getLong(int columnIndex) {
+        switch (columnIndex) {
+            case 0:
+                return ids[position];
+            case 3:
+                return publishDates[position];
+            case 4:
+                return categories[position];
+            default:
+                throw new IllegalArgumentException("column " + columnIndex + " is not an integer");
+        }
+    }
+
+    @Override
+    public float getFloat(int columnIndex) {
+        return getLong(columnIndex);
+    }
+
+    @Override
+    public double getDouble(int columnIndex) {
+        return getLong(columnIndex);
+    }
+
+    @Override
+    public int getType(int columnIndex) {
+        return columnIndex == 1 || columnIndex == 2 ? FIELD_TYPE_STRING : FIELD_TYPE_INTEGER;
+    }
+
+    @Override
+    public boolean isNull(int columnIndex) {
+        return false;
+    }
+
+    @Override
+    public void deactivate() {
+    }
+
+    @Override
+    public boolean requery() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public void registerContentObserver(ContentObserver observer) {
+    }
+
+    @Override
+    public void unregisterContentObserver(ContentObserver observer) {
+    }
+
+    @Override
+    public void registerDataSetObserver(DataSetObserver observer) {
+    }
+
+    @Override
+    public void unregisterDataSetObserver(DataSetObserver observer) {
+    }
+
+    @Override
+    public void setNotificationUri(ContentResolver resolver, Uri uri) {
+    }
+
+    @Override
+    public Uri getNotificationUri() {
+        return null;
+    }
+
+    @Override
+    public boolean getWantsAllOnMoveCalls() {
+        return false;
+    }
+
+    @Override
+    public void setExtras(Bundle extras) {
+    }
+
+    @Override
+    public Bundle getExtras() {
+        return null;
+    }
+
+    @Override
+    public Bundle respond(Bundle extras) {
+        return null;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.bookmanagement.benchmark;
+
+import android.database.Cursor;
+
+import com.example.bookmanagement.database.EpochDays;
+import com.example.bookmanagement.model.Book;
+
+import java.util.Date;
+
+// DatabaseHelper.cursorToBook as it was before BookRowMapper, kept as the baseline:
+// every column is looked up by name on every row and dates go through java.time.
+final class LegacyBookMapper {
+    private LegacyBookMapper() {
+    }
+
+    static Book cursorToBook(Cursor cursor) {
+        Book book = new Book();
+        book.setId(cursor.getInt(cursor.getColumnIndex("id")));
+        book.setTitle(cursor.getString(cursor.getColumnIndex("title")));
+        book.setAuthor(cursor.getString(cursor.getColumnIndex("author")));
+
+        int dateColumn = cursor.getColumnIndex("publish_date");
+        if (cursor.isNull(dateColumn)) {
+            book.setPublishDate(new Date());
+        } else {
+            book.setPublishDate(EpochDays.toDate(cursor.getLong(dateColumn)));
+        }
+
+        book.setCategories(cursor.getInt(cursor.getColumnIndex("categories")));
+        return book;
+    }
+}